@@ -1,6 +1,9 @@
 package org.example;
 
 import javafx.scene.chart.*;
+import org.example.list.TransactionSchema;
+import org.example.utils.FieldParsers;
+
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
@@ -62,24 +65,22 @@ public class ConsumerTrendChart {
         String transactionFile = currentUser.getUsername() + "_transactions.csv";
 
         try (BufferedReader br = new BufferedReader(new FileReader(transactionFile))) {
+            // 根据标题推断列布局
+            TransactionSchema schema = TransactionSchema.fromHeader(br.readLine());
             String line;
             while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length < 7) continue; // 确保至少有7个字段
+                String[] parts = schema.split(line);
+                if (!schema.accepts(parts)) continue;
                 // 只统计本用户
-                if (!parts[1].equals(currentUser.getUsername())) continue; // 索引从0变为1
+                if (!schema.belongsTo(parts, currentUser.getUsername())) continue;
                 // 解析日期
-                String raw = parts[3].replace('/', '-').trim(); // 索引从2变为3
-                LocalDate date;
-                try {
-                    date = LocalDate.parse(raw, DateTimeFormatter.ISO_LOCAL_DATE);
-                } catch (DateTimeParseException ex) {
-                    date = LocalDate.parse(raw, DateTimeFormatter.ofPattern("yyyy-M-d"));
-                }
+                LocalDate date = parseDate(schema.get(parts, TransactionSchema.Field.DATE));
+                if (date == null) continue;
                 YearMonth ym = YearMonth.from(date);
                 // 只保留最近 6 个月 + 本月
                 if (ym.isBefore(sixMonthsAgo) || ym.isAfter(current)) continue;
-                double amt = Double.parseDouble(parts[4]); // 索引从3变为4
+                double amt = schema.amount(parts);
+                if (Double.isNaN(amt)) continue;
                 monthlySpending.merge(ym, amt, Double::sum);
             }
         } catch (IOException e) {
@@ -94,4 +95,20 @@ public class ConsumerTrendChart {
         // 按月排序
         return new TreeMap<>(monthlySpending);
     }
-}
\ No newline at end of file
+
+    /**
+     * 解析 yyyy-MM-dd 或 yyyy/M/d 格式的日期，格式错误时返回null
+     */
+    private static LocalDate parseDate(String raw) {
+        String text = raw.replace('/', '-');
+        LocalDate date = FieldParsers.parseDate(text);
+        if (date != null) {
+            return date;
+        }
+        try {
+            return LocalDate.parse(text, DateTimeFormatter.ofPattern("yyyy-M-d"));
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+    }
+}
@@ -10,13 +10,15 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.nio.file.Files;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
+import org.example.list.TransactionFileMigrator;
+import org.example.list.TransactionSchema;
+
 import javafx.application.Platform;
 import javafx.scene.control.Alert;
 
@@ -312,12 +314,16 @@ public class UserManager {
         String transactionFile = user.getUsername() + "_transactions.csv";
         try (BufferedReader br = new BufferedReader(new FileReader(transactionFile))) {
             String line;
-            br.readLine(); // 跳过标题行
+            // 根据标题行推断列布局
+            TransactionSchema schema = TransactionSchema.fromHeader(br.readLine());
             while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length >= 7 && parts[1].equals(user.getUsername())) {
-                    LocalDate date = LocalDate.parse(parts[3]);
-                    double amount = Double.parseDouble(parts[4]);
+                String[] parts = schema.split(line);
+                if (isUserRow(schema, parts, user.getUsername())) {
+                    LocalDate date = schema.date(parts);
+                    double amount = schema.amount(parts);
+                    if (date == null || Double.isNaN(amount)) {
+                        continue;
+                    }
 
                     if (date.getYear() == currentYear && date.getMonthValue() == currentMonth) {
                         if (amount < 0) {
@@ -347,12 +353,16 @@ public class UserManager {
         String transactionFile = user.getUsername() + "_transactions.csv";
         try (BufferedReader br = new BufferedReader(new FileReader(transactionFile))) {
             String line;
-            br.readLine(); // 跳过标题行
+            // 根据标题行推断列布局
+            TransactionSchema schema = TransactionSchema.fromHeader(br.readLine());
             while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length >= 7 && parts[1].equals(user.getUsername())) {
-                    LocalDate date = LocalDate.parse(parts[3]);
-                    double amount = Double.parseDouble(parts[4]);
+                String[] parts = schema.split(line);
+                if (isUserRow(schema, parts, user.getUsername())) {
+                    LocalDate date = schema.date(parts);
+                    double amount = schema.amount(parts);
+                    if (date == null || Double.isNaN(amount)) {
+                        continue;
+                    }
 
                     if (date.getYear() == currentYear) {
                         if (amount < 0) {
@@ -373,6 +383,13 @@ public class UserManager {
         return totalExpenses - totalIncome;
     }
 
+    /**
+     * 包含必要列且属于指定用户的交易行
+     */
+    private static boolean isUserRow(TransactionSchema schema, String[] parts, String username) {
+        return schema.accepts(parts) && schema.belongsTo(parts, username);
+    }
+
     // 检查交易文件的变化并更新 savedAmount 和 annualSavedAmount
     public void checkTransactionsFile() {
         if (!isLoggedIn) {
@@ -409,7 +426,7 @@ public class UserManager {
         List<String> removedTransactions = new ArrayList<>(lastTransactions);
         removedTransactions.removeAll(currentTransactions);
 
-        updateSavedAmounts(newTransactions, removedTransactions);
+        updateSavedAmounts(newTransactions, removedTransactions, TransactionSchema.fromHeader(lines.get(0)));
         saveLastTransactions(currentUser.getUsername(), currentTransactions);
 
         if (!newTransactions.isEmpty()) {
@@ -429,6 +446,14 @@ public class UserManager {
 
     // 更新 savedAmount 和 annualSavedAmount
     public void updateSavedAmounts(List<String> newTransactions, List<String> removedTransactions) {
+        updateSavedAmounts(newTransactions, removedTransactions, TransactionSchema.STORE);
+    }
+
+    /**
+     * 按交易文件的列布局解析新增和删除的交易行，更新 savedAmount 和 annualSavedAmount
+     */
+    public void updateSavedAmounts(List<String> newTransactions, List<String> removedTransactions,
+            TransactionSchema schema) {
         User currentUser = DashboardView.getCurrentUser();
         if (currentUser == null) {
             return;
@@ -440,12 +465,13 @@ public class UserManager {
         double removedYearlySpent = 0.0;
 
         for (String line : newTransactions) {
-            String[] parts = line.split(",");
-            if (parts.length >= 7 && parts[1].equals(currentUser.getUsername())) {
-                double amount = Double.parseDouble(parts[4]);
-                String dateStr = parts[3];
-                DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-                LocalDate date = LocalDate.parse(dateStr, formatter);
+            String[] parts = schema.split(line);
+            if (isUserRow(schema, parts, currentUser.getUsername())) {
+                double amount = schema.amount(parts);
+                LocalDate date = schema.date(parts);
+                if (date == null || Double.isNaN(amount)) {
+                    continue;
+                }
 
                 if (date.getYear() == LocalDate.now().getYear() && date.getMonthValue() == LocalDate.now().getMonthValue()) {
                     newMonthlySpent += amount;
@@ -459,12 +485,13 @@ public class UserManager {
         }
 
         for (String line : removedTransactions) {
-            String[] parts = line.split(",");
-            if (parts.length >= 7 && parts[1].equals(currentUser.getUsername())) {
-                double amount = Double.parseDouble(parts[4]);
-                String dateStr = parts[3];
-                DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-                LocalDate date = LocalDate.parse(dateStr, formatter);
+            String[] parts = schema.split(line);
+            if (isUserRow(schema, parts, currentUser.getUsername())) {
+                double amount = schema.amount(parts);
+                LocalDate date = schema.date(parts);
+                if (date == null || Double.isNaN(amount)) {
+                    continue;
+                }
 
                 if (date.getYear() == LocalDate.now().getYear() && date.getMonthValue() == LocalDate.now().getMonthValue()) {
                     removedMonthlySpent += amount;
@@ -548,12 +575,17 @@ public class UserManager {
         String transactionFile = user.getUsername() + "_transactions.csv";
         try (BufferedReader br = new BufferedReader(new FileReader(transactionFile))) {
             String line;
-            br.readLine(); // 跳过标题行
+            // 根据标题行推断列布局
+            TransactionSchema schema = TransactionSchema.fromHeader(br.readLine());
             while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length >= 7 && parts[1].equals(user.getUsername()) && parts[5].equals(category)) {
-                    LocalDate date = LocalDate.parse(parts[3]);
-                    double amount = Double.parseDouble(parts[4]);
+                String[] parts = schema.split(line);
+                if (isUserRow(schema, parts, user.getUsername())
+                        && schema.get(parts, TransactionSchema.Field.CATEGORY).equals(category)) {
+                    LocalDate date = schema.date(parts);
+                    double amount = schema.amount(parts);
+                    if (date == null || Double.isNaN(amount)) {
+                        continue;
+                    }
 
                     if (date.getYear() == currentYear && date.getMonthValue() == currentMonth) {
                         if (amount < 0) {
@@ -580,10 +612,13 @@ public class UserManager {
         File file = new File(transactionFile);
         if (!file.exists()) {
             try (PrintWriter writer = new PrintWriter(new FileWriter(file))) {
-                writer.println("id,username,source,date,amount,category,description");
+                writer.println(TransactionSchema.STORE_HEADER);
             } catch (IOException e) {
                 System.err.println("Failed to create transaction file: " + transactionFile + ". Error: " + e.getMessage());
             }
+        } else {
+            // 旧格式的文件在后台升级
+            TransactionFileMigrator.migrateInBackground(file);
         }
     }
 
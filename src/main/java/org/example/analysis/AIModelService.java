@@ -1,9 +1,6 @@
 package org.example.analysis;
 
 import java.io.IOException;
-import java.net.URI;
-import java.net.URISyntaxException;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.LocalDate;
@@ -21,6 +18,9 @@ import org.json.simple.JSONArray;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
+import org.example.utils.AiConfig;
+import org.example.utils.AiHttpClient;
+
 /**
  * AIModelService - 提供AI模型服务调用功能，用于支出预测和预算推荐
  */
@@ -30,19 +30,10 @@ public class AIModelService {
     // API Configuration - DeepSeek API Setup
     // =================================================================
 
-    // IMPORTANT: To successfully call the DeepSeek API, follow these steps:
-    // 1. Get your API key from DeepSeek (https://platform.deepseek.com/)
-    // 2. Replace "YOUR_DEEPSEEK_API_KEY" below with your actual API key
-    // 3. Set useRealDeepSeekAPI to true
-
-    // Your DeepSeek API key - replace with your actual key
-    private static final String DEEPSEEK_API_KEY = "sk-c4dc6fa348f24f6ab3ddc5514041676d";
-
-    // DeepSeek API endpoint
-    private static final String DEEPSEEK_API_URL = "https://api.deepseek.com/v1/chat/completions";
-
-    // DeepSeek model to use
-    private static final String DEEPSEEK_MODEL = "deepseek-chat";
+    // The endpoint, model and API key come from AiConfig: system properties
+    // (ai.endpoint, ai.model, ai.apiKey), environment variables (AI_ENDPOINT,
+    // AI_MODEL, AI_API_KEY) or ai.properties, falling back to DeepSeek.
+    // Point ai.endpoint at a local StubChatServer to test offline.
 
     // Set to true to use the real DeepSeek API instead of simulated data
     // WARNING: When set to true, this will incur charges to your DeepSeek account
@@ -52,9 +43,6 @@ public class AIModelService {
     // End of API Configuration
     // =================================================================
 
-    // HTTP client for API calls
-    private static final HttpClient httpClient = HttpClient.newBuilder().build();
-
     // Random number generator for simulated data
     private static final Random random = new Random();
 
@@ -114,7 +102,7 @@ public class AIModelService {
         }
 
         // 首先尝试使用DeepSeek API（如果启用）
-        if (useRealDeepSeekAPI && !DEEPSEEK_API_KEY.equals("YOUR_DEEPSEEK_API_KEY")) {
+        if (useRealDeepSeekAPI && AiConfig.get().hasApiKey()) {
             try {
                 predictions = callDeepSeekForForecast(historicalData, months);
             } catch (Exception e) {
@@ -177,9 +165,10 @@ public class AIModelService {
             String prompt = promptBuilder.toString();
             System.out.println("DeepSeek prediction prompt: " + prompt);
 
-            // 构建请求体
+            // 构建请求体，一次请求使用同一份配置
+            AiConfig config = AiConfig.get();
             JSONObject requestBody = new JSONObject();
-            requestBody.put("model", DEEPSEEK_MODEL);
+            requestBody.put("model", config.getModel());
             requestBody.put("stream", false);
 
             // 构建消息数组
@@ -203,17 +192,13 @@ public class AIModelService {
             requestBody.put("max_tokens", 1000);
 
             // 创建HTTP请求
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(new URI(DEEPSEEK_API_URL))
-                    .header("Authorization", "Bearer " + DEEPSEEK_API_KEY)
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(requestBody.toString()))
-                    .build();
+            HttpRequest request = AiHttpClient.newJsonPost(config.getEndpoint(), config.getApiKey(),
+                    requestBody.toString());
 
             System.out.println("Sending request to DeepSeek API...");
 
             // 发送请求并获取响应
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> response = AiHttpClient.send(request);
 
             // 处理响应
             if (response.statusCode() == 200) {
@@ -457,7 +442,7 @@ public class AIModelService {
         }
 
         // 首先尝试使用DeepSeek API（如果启用）
-        if (useRealDeepSeekAPI && !DEEPSEEK_API_KEY.equals("YOUR_DEEPSEEK_API_KEY")) {
+        if (useRealDeepSeekAPI && AiConfig.get().hasApiKey()) {
             try {
                 recommendations = callDeepSeekForBudgetRecommendation(monthlyAverages, applySeasonalAdjustments);
             } catch (Exception e) {
@@ -529,9 +514,10 @@ public class AIModelService {
             String prompt = promptBuilder.toString();
             System.out.println("DeepSeek budget recommendation prompt: " + prompt);
 
-            // 构建请求体
+            // 构建请求体，一次请求使用同一份配置
+            AiConfig config = AiConfig.get();
             JSONObject requestBody = new JSONObject();
-            requestBody.put("model", DEEPSEEK_MODEL);
+            requestBody.put("model", config.getModel());
             requestBody.put("stream", false);
 
             // 构建消息数组
@@ -555,17 +541,13 @@ public class AIModelService {
             requestBody.put("max_tokens", 1200);
 
             // 创建HTTP请求
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(new URI(DEEPSEEK_API_URL))
-                    .header("Authorization", "Bearer " + DEEPSEEK_API_KEY)
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(requestBody.toString()))
-                    .build();
+            HttpRequest request = AiHttpClient.newJsonPost(config.getEndpoint(), config.getApiKey(),
+                    requestBody.toString());
 
             System.out.println("Sending budget recommendation request to DeepSeek API...");
 
             // 发送请求并获取响应
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> response = AiHttpClient.send(request);
 
             // 处理响应
             if (response.statusCode() == 200) {
@@ -12,6 +12,7 @@ import javafx.stage.Stage;
 import org.example.DashboardView;
 import org.example.User;
 import org.example.UserManager;
+import org.example.list.TransactionSchema;
 import org.example.utils.LoadingUtils;
 
 import java.io.BufferedReader;
@@ -19,7 +20,6 @@ import java.io.File;
 import java.io.FileReader;
 import java.time.LocalDate;
 import java.time.Month;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 /**
@@ -154,13 +154,11 @@ public class BudgetRecommendationView extends BorderPane {
             // 跳过标题行
             String header = reader.readLine();
             System.out.println("CSV标题: " + header);
+            TransactionSchema schema = TransactionSchema.fromHeader(header);
 
             // 按类别统计支出
             Map<String, List<Double>> categoryExpenses = new HashMap<>();
 
-            // 日期格式化
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-
             int lineCount = 0;
             int processedCount = 0;
             int skippedCount = 0;
@@ -169,11 +167,15 @@ public class BudgetRecommendationView extends BorderPane {
             String line;
             while ((line = reader.readLine()) != null) {
                 lineCount++;
-                String[] parts = line.split(",");
-                if (parts.length >= 6) {
+                String[] parts = schema.split(line);
+                if (schema.accepts(parts)) {
                     try {
-                        // 解析日期在索引3 (Date列)
-                        LocalDate date = LocalDate.parse(parts[3], formatter);
+                        // 按表头推断的列解析日期
+                        LocalDate date = schema.date(parts);
+                        if (date == null) {
+                            skippedCount++;
+                            continue;
+                        }
 
                         // 只考虑选定时间范围内的数据
                         if (date.isBefore(startDate)) {
@@ -182,13 +184,12 @@ public class BudgetRecommendationView extends BorderPane {
                         }
 
                         // 解析金额和类别
-                        // 金额在索引4 (Amount列)
-                        double amount = Double.parseDouble(parts[4]);
-                        // 类别在索引5 (Category列)
-                        String category = parts[5].trim();
-
-                        System.out
-                                .println("处理第 " + lineCount + " 行: 日期=" + date + ", 金额=" + amount + ", 类别=" + category);
+                        double amount = schema.amount(parts);
+                        if (Double.isNaN(amount)) {
+                            skippedCount++;
+                            continue;
+                        }
+                        String category = schema.get(parts, TransactionSchema.Field.CATEGORY);
 
                         // 只考虑支出（正数金额）
                         if (amount > 0) {
@@ -200,19 +201,15 @@ public class BudgetRecommendationView extends BorderPane {
                                 categoryExpenses.put(category, new ArrayList<>());
                             }
                             categoryExpenses.get(category).add(amount);
-                            System.out.println("添加类别支出: " + category + " = " + amount);
                         } else {
-                            System.out.println("跳过第 " + lineCount + " 行: 非支出交易 (金额不是正数)");
                             skippedCount++;
                         }
                     } catch (Exception e) {
-                        System.out.println("解析第 " + lineCount + " 行出错: " + e.getMessage() + ", 原始数据: " + line);
                         skippedCount++;
                         // 忽略解析错误的记录
                         continue;
                     }
                 } else {
-                    System.out.println("跳过第 " + lineCount + " 行: 列数不足 (需要至少6列), 实际列数: " + parts.length);
                     skippedCount++;
                 }
             }
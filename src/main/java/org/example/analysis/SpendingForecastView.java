@@ -15,6 +15,7 @@ import javafx.scene.text.Text;
 import javafx.stage.Stage;
 import org.example.DashboardView;
 import org.example.User;
+import org.example.list.TransactionSchema;
 import org.example.utils.LoadingUtils;
 
 import java.io.BufferedReader;
@@ -23,7 +24,6 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.YearMonth;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 /**
@@ -202,10 +202,10 @@ public class SpendingForecastView extends BorderPane {
             // 跳过标题行
             String header = reader.readLine();
             System.out.println("CSV标题: " + header);
+            TransactionSchema schema = TransactionSchema.fromHeader(header);
             System.out.println("成功打开交易文件");
 
             String line;
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
             int lineCount = 0;
             int processedCount = 0;
             int skippedCount = 0;
@@ -213,19 +213,21 @@ public class SpendingForecastView extends BorderPane {
 
             while ((line = reader.readLine()) != null) {
                 lineCount++;
-                String[] parts = line.split(",");
+                String[] parts = schema.split(line);
 
                 // 验证数据格式
-                if (parts.length < 6) {
-                    System.out
-                            .println("跳过第 " + lineCount + " 行: 列数不足 (需要至少6列), 实际列数: " + parts.length + ", 数据: " + line);
+                if (!schema.accepts(parts)) {
                     skippedCount++;
                     continue;
                 }
 
                 try {
-                    // 解析日期在索引3 (Date列)
-                    LocalDate date = LocalDate.parse(parts[3], formatter);
+                    // 按表头推断的列解析日期
+                    LocalDate date = schema.date(parts);
+                    if (date == null) {
+                        skippedCount++;
+                        continue;
+                    }
 
                     // 检查日期是否在选定的时间范围内
                     if (date.isBefore(startDate)) {
@@ -233,10 +235,11 @@ public class SpendingForecastView extends BorderPane {
                         continue;
                     }
 
-                    // 金额在索引4 (Amount列)
-                    double amount = Double.parseDouble(parts[4]);
-
-                    System.out.println("处理第 " + lineCount + " 行: 日期=" + date + ", 金额=" + amount);
+                    double amount = schema.amount(parts);
+                    if (Double.isNaN(amount)) {
+                        skippedCount++;
+                        continue;
+                    }
 
                     // 仅考虑支出（正数金额）
                     if (amount > 0) {
@@ -246,13 +249,10 @@ public class SpendingForecastView extends BorderPane {
 
                         // 累加到月度总计
                         monthlySpending.put(month, monthlySpending.getOrDefault(month, 0.0) + amount);
-                        System.out.println("添加月度支出: " + month + " = " + amount);
                     } else {
-                        System.out.println("跳过第 " + lineCount + " 行: 非支出交易 (金额不是正数)");
                         skippedCount++;
                     }
                 } catch (Exception e) {
-                    System.out.println("解析第 " + lineCount + " 行出错: " + e.getMessage() + ", 原始数据: " + line);
                     skippedCount++;
                     continue;
                 }
@@ -14,14 +14,15 @@ import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.scene.text.Text;
 import org.example.User;
+import org.example.list.TransactionSchema;
 import org.example.utils.LoadingUtils;
+import org.example.utils.ParseErrorReport;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.Map;
 import javafx.concurrent.Task;
@@ -171,120 +172,71 @@ public class SpendingStructureChart extends BorderPane {
             return;
         }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(transactionFile))) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(transactionFile));
+                ParseErrorReport errors = new ParseErrorReport(ParseErrorReport.DEFAULT_MAX_ERRORS,
+                        ParseErrorReport.rejectFileFor(transactionFile))) {
             // 读取标题行
             String header = reader.readLine();
             System.out.println("CSV标题: " + header);
             System.out.println("成功打开交易文件");
 
-            // 解析标题获取列索引
-            String[] headers = header.split(",");
-            int userIdx = -1, dateIdx = -1, amountIdx = -1, categoryIdx = -1, descriptionIdx = -1, sourceIdx = -1;
-
-            // 查找列索引
-            for (int i = 0; i < headers.length; i++) {
-                String col = headers[i].trim().toLowerCase();
-                if (col.equals("user") || col.equals("username"))
-                    userIdx = i;
-                else if (col.equals("date"))
-                    dateIdx = i;
-                else if (col.equals("amount"))
-                    amountIdx = i;
-                else if (col.equals("category"))
-                    categoryIdx = i;
-                else if (col.equals("description"))
-                    descriptionIdx = i;
-                else if (col.equals("source"))
-                    sourceIdx = i;
-            }
-
-            // 验证必要的列是否存在
-            if (dateIdx == -1 || amountIdx == -1) {
-                System.err.println("CSV文件缺少必要的Date或Amount列");
-                return;
-            }
-
-            // 记录列索引情况
-            System.out.println("CSV列索引: User=" + userIdx +
-                    ", Date=" + dateIdx +
-                    ", Amount=" + amountIdx +
-                    ", Category=" + categoryIdx +
-                    ", Description=" + descriptionIdx +
-                    ", Source=" + sourceIdx);
+            // 根据标题推断列布局，逐行解析时直接按列读取
+            TransactionSchema schema = TransactionSchema.fromHeader(header);
+            int dateColumn = schema.column(TransactionSchema.Field.DATE) + 1;
+            int amountColumn = schema.column(TransactionSchema.Field.AMOUNT) + 1;
 
             String line;
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-            int lineCount = 0;
+            int lineCount = 1;
             int processedCount = 0;
 
             while ((line = reader.readLine()) != null) {
                 lineCount++;
-                String[] parts = line.split(",");
+                String[] parts = schema.split(line);
 
-                // 检查数据格式
-                if (parts.length <= Math.max(dateIdx, amountIdx)) {
-                    System.out.println("第 " + lineCount + " 行数据不足: " + line);
+                // 检查数据格式，格式错误的行记录到错误报告后跳过
+                if (!schema.accepts(parts)) {
+                    errors.record(transactionFile.getName(), lineCount, 0, "too few columns", line);
                     continue;
                 }
 
-                try {
-                    // 解析日期
-                    LocalDate date = LocalDate.parse(parts[dateIdx], formatter);
-
-                    // 检查日期是否在选定的时间范围内
-                    if (date.isBefore(startDate)) {
-                        continue;
-                    }
-
-                    // 解析金额
-                    double amount;
-                    try {
-                        amount = Double.parseDouble(parts[amountIdx]);
-                    } catch (NumberFormatException e) {
-                        // 尝试去除货币符号和逗号
-                        String cleanAmount = parts[amountIdx].replaceAll("[^\\d.-]", "");
-                        amount = Double.parseDouble(cleanAmount);
-                    }
+                // 解析日期
+                LocalDate date = schema.date(parts);
+                if (date == null) {
+                    errors.record(transactionFile.getName(), lineCount, dateColumn, "invalid date", line);
+                    continue;
+                }
 
-                    // 获取类别（如果存在）
-                    String category;
-                    if (categoryIdx != -1 && categoryIdx < parts.length) {
-                        category = parts[categoryIdx].trim();
-                        // 如果类别为空，使用"Uncategorized"
-                        if (category.isEmpty()) {
-                            category = "Uncategorized";
-                        }
-                    } else {
-                        category = "Uncategorized";
-                    }
+                // 检查日期是否在选定的时间范围内
+                if (date.isBefore(startDate)) {
+                    continue;
+                }
 
-                    // 获取来源（如果存在）
-                    String source = "";
-                    if (sourceIdx != -1 && sourceIdx < parts.length) {
-                        source = parts[sourceIdx].trim();
-                    }
+                // 解析金额，忽略货币符号和千位分隔符
+                double amount = schema.amount(parts);
+                if (Double.isNaN(amount)) {
+                    errors.record(transactionFile.getName(), lineCount, amountColumn, "invalid amount", line);
+                    continue;
+                }
 
-                    System.out.println("发现交易: 日期=" + date + ", 类别=" + category + ", 金额=" + amount + ", 来源=" + source);
+                // 获取类别，为空时使用"Uncategorized"
+                String category = schema.get(parts, TransactionSchema.Field.CATEGORY);
+                if (category.isEmpty()) {
+                    category = "Uncategorized";
+                }
 
-                    // 处理支出（正数金额）
-                    if (amount > 0) {
-                        processedCount++;
+                // 处理支出（正数金额）
+                if (amount > 0) {
+                    processedCount++;
 
-                        // 累加到类别总计
-                        categoryTotals.put(category, categoryTotals.getOrDefault(category, 0.0) + amount);
-                        totalSpending += amount;
-                        System.out.println("添加支出: " + category + " = " + amount);
-                    }
-                } catch (NumberFormatException e) {
-                    System.out.println("解析第 " + lineCount + " 行金额出错: " + e.getMessage());
-                    continue;
-                } catch (Exception e) {
-                    System.out.println("处理第 " + lineCount + " 行出错: " + e.getMessage());
-                    e.printStackTrace();
-                    continue;
+                    // 累加到类别总计
+                    categoryTotals.put(category, categoryTotals.getOrDefault(category, 0.0) + amount);
+                    totalSpending += amount;
                 }
             }
 
+            if (errors.hasErrors()) {
+                System.out.println("跳过无法解析的行: " + errors.summary());
+            }
             System.out.println("处理完成。总共处理 " + processedCount + " 条支出记录");
             System.out.println("类别总数: " + categoryTotals.size());
             System.out.println("总支出: " + totalSpending);
@@ -0,0 +1,65 @@
+package org.example.dataImport;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.example.list.Transaction;
+import org.example.utils.FieldParsers;
+
+/**
+ * 支付宝账单（交易明细CSV）
+ * 表头之前是导出信息和特别提示，表头为第一行至少7列的记录
+ */
+public class AlipayImporter implements StatementImporter {
+
+    @Override
+    public String getName() {
+        return "alipay";
+    }
+
+    @Override
+    public int sniff(List<String[]> headRows) {
+        return StatementImporters.containsText(headRows, "支付宝") ? 100 : 0;
+    }
+
+    @Override
+    public boolean isHeader(String[] row) {
+        return row.length >= 7 && !StatementImporters.isEmptyRow(row);
+    }
+
+    @Override
+    public boolean isCheckpointed() {
+        return true;
+    }
+
+    @Override
+    public RowParser newParser(String[] header, ImportContext context) {
+        return rowData -> {
+            if (rowData.length < 7 || StatementImporters.isEmptyRow(rowData)) {
+                return null;
+            }
+            LocalDate date = FieldParsers.parseDate(StatementImporters.processDate(rowData[0]));
+            if (date == null) {
+                return context.reject(1, "invalid date");
+            }
+
+            // 处理金额，并根据交易类型调整符号
+            double amount = FieldParsers.parseAmount(StatementImporters.processAmount(rowData[6]));
+            if (Double.isNaN(amount)) {
+                return context.reject(7, "invalid amount");
+            }
+            if ("支出".equals(rowData[4])) {
+                amount = -amount;
+            }
+
+            return new Transaction(
+                    context.nextId(),
+                    context.getUsername(),
+                    "alipay",
+                    date,
+                    amount,
+                    "Uncategorized",
+                    rowData[1] + rowData[4]);
+        };
+    }
+}
@@ -0,0 +1,132 @@
+package org.example.dataImport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+/**
+ * 按字节读取文本行的读取器
+ * 与BufferedReader不同，它记录已读取的字节偏移量，便于在断点处恢复导入。
+ * 支持的编码（UTF-8、GBK、GB18030等）中换行符都不会出现在多字节字符内部。
+ */
+public class ByteLineReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private Charset charset;
+    private final Charset fallback;
+    private CharsetDecoder decoder;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferPos;
+    private int bufferLimit;
+
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private long position;
+
+    /**
+     * @param fallback 某一行不能按charset解码时改用的编码，之后的行都使用该编码；为null时不切换
+     */
+    public ByteLineReader(InputStream in, Charset charset, Charset fallback, long startPosition) {
+        this.in = in;
+        this.charset = charset;
+        this.fallback = fallback;
+        this.position = startPosition;
+        if (fallback != null) {
+            this.decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT);
+        }
+    }
+
+    /**
+     * 读取下一行，不包含行尾的\r\n
+     *
+     * @return 文本行；到达文件末尾时返回null
+     */
+    public String readLine() throws IOException {
+        lineLength = 0;
+        boolean sawAnyByte = false;
+
+        while (true) {
+            if (bufferPos >= bufferLimit) {
+                bufferLimit = in.read(buffer);
+                bufferPos = 0;
+                if (bufferLimit <= 0) {
+                    bufferLimit = 0;
+                    return sawAnyByte ? decodeLine() : null;
+                }
+            }
+
+            int start = bufferPos;
+            while (bufferPos < bufferLimit && buffer[bufferPos] != '\n') {
+                bufferPos++;
+            }
+            appendToLine(start, bufferPos - start);
+            position += bufferPos - start;
+            sawAnyByte = true;
+
+            if (bufferPos < bufferLimit) {
+                // 跳过换行符
+                bufferPos++;
+                position++;
+                return decodeLine();
+            }
+        }
+    }
+
+    /**
+     * @return 已返回的最后一行之后的字节偏移量
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * @return 当前使用的编码，发生过回退时为回退编码
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void appendToLine(int from, int length) {
+        if (length == 0) {
+            return;
+        }
+        if (lineLength + length > line.length) {
+            line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + length));
+        }
+        System.arraycopy(buffer, from, line, lineLength, length);
+        lineLength += length;
+    }
+
+    private String decodeLine() {
+        int length = lineLength;
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        if (decoder != null) {
+            try {
+                return decoder.decode(ByteBuffer.wrap(line, 0, length)).toString();
+            } catch (CharacterCodingException e) {
+                // 只重新解码这一行，不需要从文件开头重新读取
+                System.out.println("编码回退: " + charset.name() + " -> " + fallback.name() + "，位置 " + position);
+                charset = fallback;
+                decoder = null;
+            }
+        }
+        return new String(line, 0, length, charset);
+    }
+}
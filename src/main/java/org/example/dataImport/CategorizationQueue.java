@@ -0,0 +1,164 @@
+package org.example.dataImport;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 等待AI分类的交易队列
+ * 导入时API不可用的交易ID进入队列，由 {@link CategorizationWorker} 在API恢复后分批取出分类。
+ * 队列保存在 "<用户名>_categorize_queue.txt" 中，每行为 "+ID"（入队）或 "-ID"（完成），
+ * 追加后立即同步到磁盘，程序退出或崩溃后重新打开时按日志恢复；已完成的行较多时重写日志。
+ */
+public class CategorizationQueue {
+
+    // 日志中的行数超过待分类数的多少倍时重写
+    private static final int COMPACT_FACTOR = 4;
+
+    // 日志至少有多少行时才考虑重写
+    private static final int COMPACT_MIN_LINES = 1000;
+
+    private static final Map<String, CategorizationQueue> QUEUES = new ConcurrentHashMap<>();
+
+    private final File file;
+    private final LinkedHashSet<Integer> pending = new LinkedHashSet<>();
+    private int journalLines;
+
+    public CategorizationQueue(File file) {
+        this.file = file;
+        load();
+    }
+
+    /**
+     * 当前目录下用户的队列，同一用户共用一个实例
+     */
+    public static CategorizationQueue forUser(String username) {
+        return QUEUES.computeIfAbsent(username,
+                key -> new CategorizationQueue(new File(key + "_categorize_queue.txt")));
+    }
+
+    /**
+     * 加入等待分类的交易，已在队列中的忽略
+     */
+    public synchronized void enqueue(Collection<Integer> ids) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int id : ids) {
+            if (pending.add(id)) {
+                lines.add("+" + id);
+            }
+        }
+        append(lines);
+    }
+
+    /**
+     * @return 按入队顺序的前max个交易ID，不会从队列中移除
+     */
+    public synchronized List<Integer> peek(int max) {
+        List<Integer> head = new ArrayList<>(Math.min(max, pending.size()));
+        for (int id : pending) {
+            if (head.size() >= max) {
+                break;
+            }
+            head.add(id);
+        }
+        return head;
+    }
+
+    /**
+     * 从队列中移除已分类（或不再需要分类）的交易
+     */
+    public synchronized void complete(Collection<Integer> ids) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int id : ids) {
+            if (pending.remove(id)) {
+                lines.add("-" + id);
+            }
+        }
+        append(lines);
+        if (journalLines >= COMPACT_MIN_LINES && journalLines > pending.size() * COMPACT_FACTOR) {
+            compact();
+        }
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    private void append(List<String> lines) throws IOException {
+        if (lines.isEmpty()) {
+            return;
+        }
+        try (FileOutputStream out = new FileOutputStream(file, true);
+                BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            for (String line : lines) {
+                writer.write(line);
+                writer.newLine();
+            }
+            writer.flush();
+            out.getFD().sync();
+        }
+        journalLines += lines.size();
+    }
+
+    // 只保留仍在队列中的交易，写入临时文件后替换
+    private void compact() throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp);
+                BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            for (int id : pending) {
+                writer.write("+" + id);
+                writer.newLine();
+            }
+            writer.flush();
+            out.getFD().sync();
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        journalLines = pending.size();
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                journalLines++;
+                if (line.length() < 2) {
+                    continue;
+                }
+                try {
+                    int id = Integer.parseInt(line.substring(1));
+                    if (line.charAt(0) == '+') {
+                        pending.add(id);
+                    } else if (line.charAt(0) == '-') {
+                        pending.remove(id);
+                    }
+                } catch (NumberFormatException e) {
+                    // 最后一行可能写了一半，忽略
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot read categorization queue: " + e.getMessage());
+        }
+    }
+}
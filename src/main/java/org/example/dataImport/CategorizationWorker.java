@@ -0,0 +1,314 @@
+package org.example.dataImport;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import org.example.list.Transaction;
+import org.example.list.TransactionCategoryWriter;
+import org.example.list.TransactionSchema;
+import org.example.utils.AiConfig;
+import org.example.utils.AiHttpClient;
+import org.example.utils.ClassificationCache;
+import org.example.utils.DeepSeekCategoryService;
+import org.example.utils.LocalCategoryModel;
+
+/**
+ * 后台分类任务：按受控的速率取出 {@link CategorizationQueue} 中的交易进行AI分类
+ * 每个用户一个守护线程。导入只把未分类的交易放入队列，不等待分类完成；
+ * 分类结果按批写回交易文件，只更新仍为 "Uncategorized" 的行，并通过 {@link Listener} 通知界面。
+ * 只有发送了API请求的批次之后才间隔一段时间，缓存、规则和本地模型能分类的批次连续处理；
+ * API熔断期间暂停。调用 {@link #cancel()} 可以停止分类并清空队列。
+ */
+public class CategorizationWorker implements Runnable {
+
+    // 每批取出的交易数
+    private static final int BATCH_SIZE = 50;
+
+    // 两批之间的间隔
+    private static final long BATCH_INTERVAL_MILLIS = 2000;
+
+    // API不可用或本批有交易没有分类时，等待多久再试
+    private static final long RETRY_INTERVAL_MILLIS = 30_000;
+
+    private static final Map<String, CategorizationWorker> WORKERS = new ConcurrentHashMap<>();
+
+    /**
+     * 分类进度的监听者，在后台线程中调用
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * 一批交易处理完成
+         *
+         * @param categories 这一批写回交易文件的分类，按交易ID索引；取消时为空
+         * @param done       本轮已处理的交易数
+         * @param remaining  队列中剩余的交易数，为0时本轮分类结束
+         */
+        void batchCompleted(Map<Integer, String> categories, int done, int remaining);
+    }
+
+    private final String username;
+    private final CategorizationQueue queue;
+    private final File store;
+    private final Object signal = new Object();
+    private boolean woken;
+    private volatile Thread thread;
+    private volatile boolean cancelled;
+    private volatile Listener listener;
+    // 队列上次为空之后处理的交易数
+    private volatile int done;
+
+    private CategorizationWorker(String username) {
+        this.username = username;
+        this.queue = CategorizationQueue.forUser(username);
+        this.store = new File(username + "_transactions.csv");
+    }
+
+    /**
+     * 启动用户的后台分类线程，已启动时只唤醒它
+     */
+    public static CategorizationWorker start(String username) {
+        CategorizationWorker worker = WORKERS.computeIfAbsent(username, key -> {
+            CategorizationWorker created = new CategorizationWorker(key);
+            created.thread = new Thread(created, "categorization-" + key);
+            created.thread.setDaemon(true);
+            created.thread.start();
+            return created;
+        });
+        worker.wakeUp();
+        return worker;
+    }
+
+    /**
+     * 设置进度的监听者，替换之前的监听者；为null时不通知
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return 队列中等待分类的交易数
+     */
+    public int getRemaining() {
+        return queue.size();
+    }
+
+    /**
+     * @return 本轮已处理的交易数
+     */
+    public int getDone() {
+        return done;
+    }
+
+    /**
+     * 停止分类：中断正在进行的请求并清空队列，已写回的分类保留，其余交易保持未分类
+     */
+    public void cancel() {
+        cancelled = true;
+        Thread running = thread;
+        if (running != null) {
+            running.interrupt();
+        }
+    }
+
+    /**
+     * 有新的交易入队时调用，结束当前的等待
+     */
+    public void wakeUp() {
+        synchronized (signal) {
+            woken = true;
+            signal.notifyAll();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                try {
+                    if (cancelled) {
+                        dropQueued();
+                    }
+                    List<Integer> ids = queue.peek(BATCH_SIZE);
+                    if (ids.isEmpty()) {
+                        done = 0;
+                        await(-1);
+                    } else if (!AiHttpClient.isAvailable()) {
+                        await(RETRY_INTERVAL_MILLIS);
+                    } else {
+                        await(drain(ids));
+                    }
+                } catch (InterruptedException e) {
+                    // 取消时继续等待新的任务，其他原因的中断结束线程
+                    if (!cancelled) {
+                        return;
+                    }
+                }
+            }
+        } finally {
+            WORKERS.remove(username, this);
+        }
+    }
+
+    // 等待指定时间或被唤醒，负数表示一直等到被唤醒
+    private void await(long millis) throws InterruptedException {
+        if (millis == 0) {
+            return;
+        }
+        synchronized (signal) {
+            long deadline = System.currentTimeMillis() + millis;
+            while (!woken) {
+                long remaining = millis < 0 ? 0 : deadline - System.currentTimeMillis();
+                if (millis > 0 && remaining <= 0) {
+                    break;
+                }
+                signal.wait(remaining);
+            }
+            woken = false;
+        }
+    }
+
+    // 清空队列并通知界面本轮分类结束
+    private void dropQueued() {
+        cancelled = false;
+        Thread.interrupted();
+        try {
+            int dropped = queue.size();
+            queue.complete(queue.peek(Integer.MAX_VALUE));
+            System.out.println("后台分类已取消，" + dropped + " 条交易保持未分类");
+        } catch (IOException e) {
+            System.err.println("Cannot clear categorization queue: " + e.getMessage());
+        }
+        done = 0;
+        notifyListener(Map.of());
+    }
+
+    private void notifyListener(Map<Integer, String> categories) {
+        Listener current = listener;
+        if (current != null) {
+            current.batchCompleted(categories, done, queue.size());
+        }
+    }
+
+    /**
+     * 分类一批交易并写回交易文件
+     *
+     * @return 距下一批需要等待的毫秒数
+     */
+    private long drain(List<Integer> ids) throws InterruptedException {
+        LocalCategoryModel localModel = LocalCategoryModel.forUser(username);
+        List<Transaction> batch;
+        try {
+            batch = readUncategorized(new HashSet<>(ids), localModel);
+            // 已被删除或已由用户手动分类的交易不再需要分类
+            Set<Integer> stale = new HashSet<>(ids);
+            batch.forEach(transaction -> stale.remove(transaction.getId()));
+            queue.complete(stale);
+            done += stale.size();
+        } catch (IOException e) {
+            System.err.println("Background categorization failed: " + e.getMessage());
+            return RETRY_INTERVAL_MILLIS;
+        }
+        if (batch.isEmpty()) {
+            notifyListener(Map.of());
+            return 0;
+        }
+
+        List<String> descriptions = new ArrayList<>(batch.size());
+        List<String> amounts = new ArrayList<>(batch.size());
+        for (Transaction transaction : batch) {
+            descriptions.add(transaction.getDescription());
+            amounts.add(String.valueOf(transaction.getAmount()));
+        }
+
+        DeepSeekCategoryService categoryService = new DeepSeekCategoryService(ClassificationCache.shared(), localModel);
+        // 没有配置API密钥时AI分类不可用，直接使用本地分类，否则留到API恢复后再分类
+        boolean remote = AiConfig.get().hasApiKey();
+        categoryService.setLocalFallback(!remote);
+        try {
+            List<String> categories = categoryService.classifyTransactionsAsync(descriptions, amounts).get();
+            Map<Integer, String> results = new LinkedHashMap<>();
+            for (int i = 0; i < batch.size(); i++) {
+                if (categories.get(i) != null) {
+                    results.put(batch.get(i).getId(), categories.get(i));
+                    localModel.learn(descriptions.get(i), amounts.get(i), categories.get(i));
+                }
+            }
+            TransactionCategoryWriter.writeCategories(store, results);
+            queue.complete(results.keySet());
+            done += results.size();
+            notifyListener(results);
+
+            if (results.size() < batch.size()) {
+                return RETRY_INTERVAL_MILLIS;
+            }
+            // 没有发送请求时不需要限速
+            return remote && categoryService.getRemoteRequests() > 0 ? BATCH_INTERVAL_MILLIS : 0;
+        } catch (IOException | ExecutionException e) {
+            System.err.println("Background categorization failed: " + e.getMessage());
+            return RETRY_INTERVAL_MILLIS;
+        } finally {
+            categoryService.shutdown();
+            localModel.save();
+        }
+    }
+
+    /**
+     * 从交易文件中读出指定ID且仍未分类的交易，同时用上次训练之后新增的已分类交易更新本地模型
+     */
+    private List<Transaction> readUncategorized(Set<Integer> ids, LocalCategoryModel localModel) throws IOException {
+        List<Transaction> found = new ArrayList<>();
+        if (!store.exists()) {
+            return found;
+        }
+        long trainedThrough = localModel.getTrainedThroughId();
+        long maxId = trainedThrough;
+        int learned = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(store), StandardCharsets.UTF_8))) {
+            TransactionSchema schema = TransactionSchema.fromHeader(reader.readLine());
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = schema.split(line);
+                int id = schema.id(parts);
+                boolean wanted = ids.contains(id);
+                if (!wanted && id <= trainedThrough) {
+                    continue;
+                }
+                Transaction transaction = schema.toTransaction(parts);
+                if (transaction == null) {
+                    continue;
+                }
+                boolean uncategorized = "Uncategorized".equals(transaction.getCategory());
+                if (wanted && uncategorized) {
+                    found.add(transaction);
+                }
+                if (id > trainedThrough) {
+                    maxId = Math.max(maxId, id);
+                    if (!uncategorized) {
+                        localModel.learn(transaction.getDescription(), String.valueOf(transaction.getAmount()),
+                                transaction.getCategory());
+                        learned++;
+                    }
+                }
+            }
+        }
+        localModel.setTrainedThroughId(maxId);
+        if (learned > 0) {
+            System.out.println("本地分类模型学习了 " + learned + " 条交易");
+        }
+        return found;
+    }
+}
@@ -0,0 +1,117 @@
+package org.example.dataImport;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import org.mozilla.universalchardet.UniversalDetector;
+
+/**
+ * 账单编码嗅探
+ * 只检查文件开头的一块数据：先看BOM，再验证是否为合法UTF-8，最后交给UniversalDetector。
+ * 检测完成后流回到数据起点（跳过BOM），解析器直接从同一个流继续读取，文件只读一遍。
+ */
+public class CharsetSniffer {
+
+    public static final int SNIFF_BYTES = 64 * 1024;
+
+    // 国内账单最常见的编码，GB18030兼容GBK和GB2312
+    private static final Charset GB18030 = Charset.forName("GB18030");
+
+    private CharsetSniffer() {
+    }
+
+    /**
+     * 嗅探流的编码，返回后流位于BOM之后
+     *
+     * @param in 支持mark的流，缓冲区至少为SNIFF_BYTES
+     */
+    public static Result sniff(BufferedInputStream in) throws IOException {
+        in.mark(SNIFF_BYTES);
+        byte[] block = in.readNBytes(SNIFF_BYTES);
+        in.reset();
+
+        Result result = sniff(block, block.length);
+        in.skipNBytes(result.getBomLength());
+        return result;
+    }
+
+    static Result sniff(byte[] block, int length) throws IOException {
+        if (length >= 3 && (block[0] & 0xff) == 0xEF && (block[1] & 0xff) == 0xBB && (block[2] & 0xff) == 0xBF) {
+            return new Result(StandardCharsets.UTF_8, 3, GB18030);
+        }
+        if (length >= 2 && (((block[0] & 0xff) == 0xFF && (block[1] & 0xff) == 0xFE)
+                || ((block[0] & 0xff) == 0xFE && (block[1] & 0xff) == 0xFF))) {
+            throw new IOException("UTF-16 statements are not supported, please export as UTF-8 or GBK");
+        }
+
+        // 开头是合法的UTF-8（包括纯ASCII），后面遇到无法解码的行再按GB18030解码
+        if (isValidUtf8(block, length)) {
+            return new Result(StandardCharsets.UTF_8, 0, GB18030);
+        }
+
+        UniversalDetector detector = new UniversalDetector(null);
+        detector.handleData(block, 0, length);
+        detector.dataEnd();
+        return new Result(toCharset(detector.getDetectedCharset()), 0, null);
+    }
+
+    private static boolean isValidUtf8(byte[] block, int length) {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        // 块末尾可能截断了一个多字节字符，按未结束的输入处理
+        return !decoder.decode(ByteBuffer.wrap(block, 0, length), CharBuffer.allocate(length), false).isError();
+    }
+
+    private static Charset toCharset(String detected) {
+        if (detected == null || detected.equalsIgnoreCase("GB-18030") || detected.equalsIgnoreCase("GBK")
+                || detected.equalsIgnoreCase("GB2312")) {
+            return GB18030;
+        }
+        if (detected.equalsIgnoreCase("Big5")) {
+            return Charset.forName("MS950");
+        }
+        try {
+            Charset charset = Charset.forName(detected);
+            // 按字节查找换行符的读取器只支持兼容ASCII的编码
+            String name = charset.name().toUpperCase(Locale.ROOT);
+            return name.startsWith("UTF-16") || name.startsWith("UTF-32") ? GB18030 : charset;
+        } catch (IllegalArgumentException e) {
+            return GB18030;
+        }
+    }
+
+    public static class Result {
+        private final Charset charset;
+        private final int bomLength;
+        private final Charset fallback;
+
+        public Result(Charset charset, int bomLength, Charset fallback) {
+            this.charset = charset;
+            this.bomLength = bomLength;
+            this.fallback = fallback;
+        }
+
+        public Charset getCharset() {
+            return charset;
+        }
+
+        public int getBomLength() {
+            return bomLength;
+        }
+
+        /**
+         * 某一行无法按检测到的编码解码时改用的编码，可以为null
+         */
+        public Charset getFallback() {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.dataImport;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CSV文件的行来源，位置为字节偏移量
+ */
+public class CsvRowSource implements RowSource {
+
+    private final ByteLineReader reader;
+
+    public CsvRowSource(ByteLineReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * 从流的开头嗅探编码，然后跳到指定的字节偏移量开始读取；嗅探读取的数据块会被解析器复用
+     *
+     * @param in       指向文件开头（.gz为解压后的开头）的流
+     * @param position 起始的字节偏移量，0表示从头读取
+     */
+    public static CsvRowSource open(InputStream in, long position) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, CharsetSniffer.SNIFF_BYTES);
+        try {
+            CharsetSniffer.Result sniffed = CharsetSniffer.sniff(buffered);
+            long start = sniffed.getBomLength();
+            if (position > start) {
+                buffered.skipNBytes(position - start);
+                start = position;
+            }
+            return new CsvRowSource(new ByteLineReader(buffered, sniffed.getCharset(), sniffed.getFallback(), start));
+        } catch (IOException | RuntimeException e) {
+            buffered.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public String[] next() throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+        return parseLine(line);
+    }
+
+    @Override
+    public String getEncoding() {
+        return reader.getCharset().name();
+    }
+
+    @Override
+    public long position() {
+        return reader.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * 拆分一行CSV，支持双引号包围的字段和 "" 转义
+     */
+    public static String[] parseLine(String line) {
+        List<String> tokens = new ArrayList<>();
+        boolean inQuotes = false;
+        StringBuilder sb = new StringBuilder();
+        char[] chars = line.toCharArray();
+
+        for (int i = 0; i < chars.length; i++) {
+            char c = chars[i];
+            if (c == '"') {
+                if (i < chars.length - 1 && chars[i + 1] == '"') {
+                    sb.append('"');
+                    i++;
+                } else {
+                    inQuotes = !inQuotes;
+                }
+            } else if (c == ',' && !inQuotes) {
+                tokens.add(sb.toString().trim());
+                sb.setLength(0);
+            } else {
+                sb.append(c);
+            }
+        }
+        tokens.add(sb.toString().trim());
+        return tokens.toArray(new String[0]);
+    }
+}
@@ -1,14 +1,19 @@
 package org.example.dataImport;
 
 import java.io.File;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 import org.example.DashboardView;
 import org.example.list.Transaction;
 
+import javafx.application.Platform;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.scene.control.Alert;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
@@ -16,10 +21,15 @@ public class DataImportController {
 
     private final DataImportModel model;
     private final DataImportView view;
+    private final CategorizationWorker categorizer;
+
+    // 正在进行的导入，选择新的文件时取消
+    private Task<DataImportModel.ImportResult> runningImport;
 
     public DataImportController(Stage stage, String username) {
         this.model = new DataImportModel(username);
         this.view = new DataImportView(stage);
+        this.categorizer = CategorizationWorker.start(username);
 
         initializeView();
         setupEventHandlers();
@@ -28,41 +38,180 @@ public class DataImportController {
     private void initializeView() {
         // Set the model data to the table view
         view.getTableView().setItems(model.getTransactions());
+        view.updateCategorizingProgress(categorizer.getDone(), categorizer.getRemaining());
     }
 
     private void setupEventHandlers() {
         view.setOnImportCSV(this::handleImportCSV);
+        view.setOnImportFolder(this::handleImportFolder);
         view.setOnDownloadTemplate(this::handleDownloadTemplate);
         view.setOnSaveChanges(this::handleSaveChanges);
         view.setOnDeleteSelected(this::handleDeleteSelected);
         view.setOnClearAll(this::handleClearAll);
         view.setOnAddRecord(this::handleAddRecord);
         view.setOnBackToDashboard(this::handleBackToDashboard);
+        view.setOnPreviousPage(() -> handleShowPage(model.getPageIndex() - 1));
+        view.setOnNextPage(() -> handleShowPage(model.getPageIndex() + 1));
+        view.setOnCancelCategorizing(categorizer::cancel);
+
+        // 后台分类每完成一批就更新表格和进度
+        categorizer.setListener((categories, done, remaining) -> Platform.runLater(() -> {
+            model.applyCategories(categories);
+            view.updateCategorizingProgress(done, remaining);
+        }));
+    }
+
+    private void handleShowPage(int pageIndex) {
+        model.showPage(pageIndex);
+        refreshPageInfo();
+    }
+
+    private void refreshPageInfo() {
+        view.updatePageInfo(model.getPageIndex(), model.getPageCount(), model.getStagedCount());
     }
 
     private void handleImportCSV() {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Select CSV File to Import");
-        fileChooser.getExtensionFilters().add(
-                new FileChooser.ExtensionFilter("CSV Files", "*.csv"));
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Statement Files", "*.csv", "*.xlsx", "*.zip", "*.gz"),
+                new FileChooser.ExtensionFilter("CSV Files", "*.csv"),
+                new FileChooser.ExtensionFilter("Excel Workbooks", "*.xlsx"),
+                new FileChooser.ExtensionFilter("Compressed Statements", "*.zip", "*.gz"));
 
-        File file = fileChooser.showOpenDialog(view.getStage());
-        if (file != null) {
-            DataImportModel.ImportResult result = model.importCSV(file);
+        List<File> files = fileChooser.showOpenMultipleDialog(view.getStage());
+        if (files != null && files.size() > 1) {
+            handleImportFiles(files);
+        } else if (files != null && files.size() == 1) {
+            File file = files.get(0);
+            // 在后台线程中解析文件，结果由模型分批提交到表格
+            Task<DataImportModel.ImportResult> importTask = new Task<>() {
+                @Override
+                protected DataImportModel.ImportResult call() {
+                    return model.importCSV(file);
+                }
+            };
 
-            if (result.isSuccess()) {
-                DashboardView.setImportDone(true);
+            importTask.setOnSucceeded(event -> showImportResult(importTask.getValue()));
+            importTask.setOnFailed(event -> {
+                if (!isCancellation(importTask.getException())) {
+                    view.showAlert(Alert.AlertType.ERROR,
+                            "Import Error",
+                            "Failed to import file: " + importTask.getException().getMessage());
+                }
+            });
 
-                view.showAlert(Alert.AlertType.INFORMATION,
-                        "Import Successful",
-                        String.format("Successfully imported %d records (Encoding: %s)",
-                                result.getRecordsImported(),
-                                result.getEncoding()));
-            } else {
+            startImport(importTask, "csv-import");
+        }
+    }
+
+    /**
+     * 取消尚未完成的导入后在后台线程中开始新的导入
+     * 被取消的导入由模型撤销已暂存的记录，新的导入在撤销完成后开始
+     */
+    private void startImport(Task<DataImportModel.ImportResult> importTask, String threadName) {
+        if (runningImport != null && runningImport.isRunning()) {
+            runningImport.cancel(true);
+        }
+        runningImport = importTask;
+
+        Thread importThread = new Thread(importTask, threadName);
+        importThread.setDaemon(true);
+        importThread.start();
+    }
+
+    private void handleImportFolder() {
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle("Select Folder of Statements to Import");
+
+        File folder = directoryChooser.showDialog(view.getStage());
+        if (folder != null) {
+            File[] children = folder.listFiles();
+            List<File> files = new ArrayList<>();
+            if (children != null) {
+                for (File child : children) {
+                    if (DataImportModel.isStatementFile(child)) {
+                        files.add(child);
+                    }
+                }
+            }
+            files.sort(Comparator.comparing(File::getName));
+
+            if (files.isEmpty()) {
+                view.showAlert(Alert.AlertType.WARNING, "No Statements",
+                        "No CSV, XLSX, ZIP or GZ files found in " + folder.getName());
+                return;
+            }
+            handleImportFiles(files);
+        }
+    }
+
+    /**
+     * 在后台并行导入多个文件，显示每个文件和总体的导入速度，完成后一次性保存
+     */
+    private void handleImportFiles(List<File> files) {
+        Task<DataImportModel.ImportResult> importTask = new Task<>() {
+            @Override
+            protected DataImportModel.ImportResult call() {
+                return model.importFiles(files, progress -> {
+                    updateMessage(progress.describe());
+                    updateProgress(progress.getFilesDone(), progress.getFileCount());
+                });
+            }
+        };
+
+        view.showImportProgress(importTask.messageProperty(), importTask.progressProperty());
+        importTask.setOnSucceeded(event -> {
+            view.hideImportProgress();
+            showImportResult(importTask.getValue());
+        });
+        importTask.setOnFailed(event -> {
+            view.hideImportProgress();
+            if (!isCancellation(importTask.getException())) {
                 view.showAlert(Alert.AlertType.ERROR,
                         "Import Error",
-                        result.getErrorMessage());
+                        "Failed to import files: " + importTask.getException().getMessage());
+            }
+        });
+        importTask.setOnCancelled(event -> view.hideImportProgress());
+
+        startImport(importTask, "batch-import");
+    }
+
+    // 导入被新的导入取消时模型抛出InterruptedIOException，不是导入失败
+    private static boolean isCancellation(Throwable error) {
+        return error instanceof InterruptedIOException;
+    }
+
+    private void showImportResult(DataImportModel.ImportResult result) {
+        refreshPageInfo();
+        if (result.isSuccess()) {
+            DashboardView.setImportDone(true);
+
+            String message = String.format("Successfully imported %d records (Encoding: %s)",
+                    result.getRecordsImported(),
+                    result.getEncoding());
+            if (result.getDuplicatesSkipped() > 0) {
+                message += String.format("\nSkipped %d duplicate records already imported",
+                        result.getDuplicatesSkipped());
+            }
+            if (result.getRowsRejected() > 0) {
+                message += String.format("\nSkipped %d rows that could not be parsed", result.getRowsRejected());
+                if (result.getRejectFile() != null) {
+                    message += " (see " + result.getRejectFile().getName() + ")";
+                }
             }
+            view.showAlert(Alert.AlertType.INFORMATION, "Import Successful", message);
+        } else if (!result.getFailedFiles().isEmpty()) {
+            view.showAlert(Alert.AlertType.ERROR,
+                    "Import Error",
+                    "No records were imported because these files could not be read:\n"
+                            + String.join("\n", result.getFailedFiles())
+                            + "\n\n" + result.getErrorMessage());
+        } else {
+            view.showAlert(Alert.AlertType.ERROR,
+                    "Import Error",
+                    result.getErrorMessage());
         }
     }
 
@@ -91,6 +240,7 @@ public class DataImportController {
     private void handleSaveChanges() {
         try {
             model.saveToCSV();
+            refreshPageInfo();
             view.showAlert(Alert.AlertType.INFORMATION,
                     "Save Successful",
                     "Data successfully saved to CSV file");
@@ -114,6 +264,7 @@ public class DataImportController {
         // Create a copy of selected items to avoid concurrent modification
         List<Transaction> toDelete = new ArrayList<>(selectedTransactions);
         model.removeTransactions(toDelete);
+        refreshPageInfo();
     }
 
     private void handleClearAll() {
@@ -124,6 +275,7 @@ public class DataImportController {
 
         if (confirmed) {
             model.clearAllTransactions();
+            refreshPageInfo();
         }
     }
 
@@ -166,10 +318,12 @@ public class DataImportController {
                 view.getDescriptionText());
 
         model.addTransaction(transaction);
+        refreshPageInfo();
         view.clearForm();
     }
 
     private void handleBackToDashboard() {
+        categorizer.setListener(null);
         try {
             DashboardView dashboard = new DashboardView();
             dashboard.start(view.getStage());
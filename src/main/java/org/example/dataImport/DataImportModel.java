@@ -6,37 +6,89 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
 import java.nio.charset.StandardCharsets;
-import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
-
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.example.list.IdAllocator;
 import org.example.list.Transaction;
-import org.example.utils.DeepSeekCategoryService;
-import org.mozilla.universalchardet.UniversalDetector;
+import org.example.list.TransactionFileMigrator;
+import org.example.list.TransactionSchema;
+import org.example.utils.ParseErrorReport;
 
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
 public class DataImportModel {
 
+    // 每次向表格提交的行数，避免逐行触发列表变更事件
+    private static final int PUBLISH_BATCH_SIZE = 5000;
+
+    // 内存中最多保留的暂存记录数，超出部分写入临时文件
+    public static final int DEFAULT_SPILL_THRESHOLD = 20000;
+
+    // 预览表格每页显示的记录数
+    public static final int PREVIEW_PAGE_SIZE = 2000;
+
+    // 支付宝导入每提交多少条记录保存一次断点
+    private static final int CHECKPOINT_INTERVAL = 1000;
+
+    // 导入开始后尽快显示的行数，之后预览随解析进度继续补充直到填满当前页
+    private static final int PREVIEW_ROWS = 200;
+
+    // 预览补充的最长间隔
+    private static final long PREVIEW_FLUSH_NANOS = 100_000_000L;
+
+    // 用于嗅探格式和定位表头的开头行数
+    private static final int SNIFF_ROWS = 32;
+
     private final ObservableList<Transaction> transactions = FXCollections.observableArrayList();
-    private AtomicLong nextId = new AtomicLong(1);
+    private final ImportStaging staging;
+    private final FingerprintIndex fingerprints;
+    private volatile int pageIndex;
+    private final IdAllocator ids;
     private String currentUser;
 
     public DataImportModel(String username) {
+        this(username, DEFAULT_SPILL_THRESHOLD);
+    }
+
+    public DataImportModel(String username, int spillThreshold) {
         this.currentUser = username;
-        loadNextId();
+        this.staging = new ImportStaging(spillThreshold);
+        try {
+            // 导入前交易文件需要是当前格式，检查点按文件长度回滚
+            TransactionFileMigrator.ensureCurrent(new File(username + "_transactions.csv"));
+        } catch (IOException e) {
+            System.err.println("Cannot migrate transaction file: " + e.getMessage());
+        }
+        this.fingerprints = FingerprintIndex.open(username);
+        this.ids = IdAllocator.forUser(username);
+        // 继续上次退出时没有完成的后台分类
+        if (!CategorizationQueue.forUser(username).isEmpty()) {
+            CategorizationWorker.start(username);
+        }
     }
 
     // Getters
@@ -45,377 +97,702 @@ public class DataImportModel {
     }
 
     public long getNextId() {
-        return nextId.getAndIncrement();
+        return ids.next();
+    }
+
+    public int getPageIndex() {
+        return pageIndex;
+    }
+
+    public int getPageCount() {
+        return Math.max(1, (staging.size() + PREVIEW_PAGE_SIZE - 1) / PREVIEW_PAGE_SIZE);
+    }
+
+    public int getStagedCount() {
+        return staging.size();
     }
 
     // Transaction operations
     public void addTransaction(Transaction transaction) {
+        try {
+            staging.add(transaction);
+        } catch (IOException e) {
+            System.err.println("Cannot stage transaction: " + e.getMessage());
+            return;
+        }
         transactions.add(transaction);
     }
 
     public void removeTransactions(List<Transaction> transactionsToRemove) {
+        staging.remove(transactionsToRemove);
+        fingerprints.discardPending(transactionsToRemove);
         transactions.removeAll(transactionsToRemove);
     }
 
     public void clearAllTransactions() {
+        staging.clear();
+        fingerprints.clearPending();
         transactions.clear();
-        nextId.set(1);
+        pageIndex = 0;
     }
 
-    // File operations
-    public ImportResult importCSV(File file) {
-        String detectedEncoding = detectFileEncoding(file);
-        String[] fallbackEncodings = { "UTF-8", "GBK", "GB18030", "GB2312", "ISO-8859-1" };
-
-        List<String> encodingsToTry = new ArrayList<>();
-        if (detectedEncoding != null) {
-            encodingsToTry.add(detectedEncoding);
-        }
-        encodingsToTry.addAll(Arrays.asList(fallbackEncodings));
-
-        for (String encoding : encodingsToTry) {
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(new FileInputStream(file), encoding))) {
-
-                FileType fileType = detectFileType(reader);
-                int recordsImported = 0;
-
-                switch (fileType) {
-                    case ALIPAY:
-                        recordsImported = importAlipay(file, encoding);
-                        break;
-                    case WECHAT:
-                        recordsImported = importWechat(file, encoding);
-                        break;
-                    case REGULAR:
-                        recordsImported = importRegular(file, encoding);
-                        break;
-                }
-
-                updateMaxId();
-                saveNextId();
-                return new ImportResult(true, recordsImported, encoding, null);
+    /**
+     * 在预览表格中显示暂存记录的指定页
+     *
+     * @param index 页码，从0开始
+     */
+    public void showPage(int index) {
+        int page = Math.max(0, Math.min(index, getPageCount() - 1));
+        try {
+            List<Transaction> rows = staging.page(page * PREVIEW_PAGE_SIZE, PREVIEW_PAGE_SIZE);
+            pageIndex = page;
+            publish(rows, true);
+        } catch (IOException e) {
+            System.err.println("Cannot read staged transactions: " + e.getMessage());
+        }
+    }
 
+    // File operations
+    /**
+     * 导入单个账单；导入线程被中断（用户选择了其他文件）时撤销本次导入并返回失败结果
+     * 同一时间只进行一个导入，新的导入等待被取消的导入撤销完成后开始
+     */
+    public synchronized ImportResult importCSV(File file) {
+        if (isArchive(file)) {
+            try {
+                return importArchive(file);
             } catch (IOException e) {
-                continue;
+                return new ImportResult(false, 0, null, "Failed to read archive: " + e.getMessage());
             }
         }
-
-        return new ImportResult(false, 0, null, "Failed to import with any encoding");
+        try {
+            return importStatement(file);
+        } catch (IOException e) {
+            return new ImportResult(false, 0, null, "Failed to import " + file.getName() + ": " + e.getMessage());
+        }
     }
 
-    private int importRegular(File file, String encoding) throws IOException {
-        int recordsImported = 0;
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(new FileInputStream(file), encoding))) {
+    /**
+     * 单次读取完成编码检测、格式识别和导入：编码由文件开头的一块数据确定，
+     * 开头的若干行用于嗅探格式和定位表头，这些行不会被重新读取，而是直接交给选中的格式解析，
+     * 然后继续流式读取剩余的行
+     */
+    private ImportResult importStatement(File file) throws IOException {
+        try (RowSource source = openRows(file, 0); ParseErrorReport errors = newErrorReport()) {
+            List<String[]> head = readHead(source);
+            StatementImporter importer = StatementImporters.select(head);
+            System.out.println("识别的账单格式: " + importer.getName());
+
+            int firstImported = staging.size();
+            int recordsImported;
+            FingerprintIndex.Session session = fingerprints.newSession();
+            ImportContext context = new ImportContext(currentUser, ids, file.getName(), errors);
+            PreviewFeed preview = new PreviewFeed(firstImported);
 
-            String line;
-            boolean isFirstLine = true;
-
-            while ((line = reader.readLine()) != null) {
-                if (isFirstLine) {
-                    isFirstLine = false;
-                    continue;
+            try {
+                if (importer.isCheckpointed()) {
+                    recordsImported = importCheckpointed(file, importer, context, source, head, session, preview);
+                    firstImported = 0;
+                } else {
+                    recordsImported = importRows(importer, context, source, head, session, null, preview);
+                    fingerprints.endSession(session);
                 }
+            } catch (InterruptedIOException e) {
+                System.out.println("导入已取消: " + file.getName());
+                discardStaged(firstImported, importer.isCheckpointed());
+                return new ImportResult(false, 0, source.getEncoding(), "Import cancelled");
+            } catch (IOException e) {
+                // 读取中途失败时同样撤销本次暂存的记录，错误由调用方报告
+                discardStaged(firstImported, importer.isCheckpointed());
+                throw e;
+            }
 
-                String[] rowData = parseCsvLine(line);
-                if (rowData.length >= 6) {
-                    try {
-                        Transaction transaction = createRegularTransaction(rowData);
-                        transactions.add(transaction);
-                        recordsImported++;
-                    } catch (Exception e) {
-                        System.err.println("Failed to parse line: " + line);
-                    }
-                }
+            showPage(firstImported / PREVIEW_PAGE_SIZE);
+            if (session.getDuplicates() > 0) {
+                System.out.println("跳过重复记录: " + session.getDuplicates() + " 条");
             }
+            reportErrors(errors);
+            return new ImportResult(true, recordsImported, source.getEncoding(), null, session.getDuplicates(),
+                    errors.getErrorCount(), errors.getRejectFile());
         }
-        return recordsImported;
     }
 
-    private int importWechat(File file, String encoding) throws IOException {
-        int recordsImported = 0;
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(new FileInputStream(file), encoding))) {
+    /**
+     * 撤销单个账单暂存的记录；不结束会话即丢弃本次的指纹，支付宝已提交的部分由断点在下次导入时继续
+     */
+    private void discardStaged(int firstImported, boolean checkpointed) throws IOException {
+        staging.truncate(firstImported);
+        if (checkpointed) {
+            fingerprints.refresh();
+        }
+        showPage(firstImported / PREVIEW_PAGE_SIZE);
+    }
 
-            // Skip first 17 lines
-            for (int i = 0; i < 17; i++) {
-                if (reader.readLine() == null)
-                    break;
+    /**
+     * 批量导入多个账单文件，压缩包中的每个账单作为一个单独的文件
+     * 所有文件在有界线程池中并行解析，全部完成后一次性提交到用户交易文件
+     *
+     * @param files    要导入的文件
+     * @param listener 进度监听器，在解析线程中调用
+     */
+    public synchronized ImportResult importFiles(List<File> files, ImportProgress.Listener listener) {
+        if (files.isEmpty()) {
+            return new ImportResult(false, 0, null, "No statement files selected");
+        }
+        List<ZipFile> archives = new ArrayList<>();
+        try {
+            List<BatchEntry> entries = new ArrayList<>();
+            for (File file : files) {
+                if (isArchive(file)) {
+                    ZipFile zip = new ZipFile(file);
+                    archives.add(zip);
+                    entries.addAll(archiveEntries(zip));
+                } else {
+                    entries.add(new BatchEntry(file.getName(),
+                            (batch, progress, errors) -> importFileEntry(file, batch, progress, errors)));
+                }
             }
-
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] rowData = parseCsvLine(line);
-                if (rowData.length >= 6 && !isEmptyRow(rowData)) {
-                    Transaction transaction = createWechatTransaction(rowData);
-                    transactions.add(transaction);
-                    recordsImported++;
+            if (entries.isEmpty()) {
+                return new ImportResult(false, 0, null, "No statements found in the selected files");
+            }
+            // 分类断点以第一个文件为键，中断后重新导入同一批文件时继续分类
+            return importBatch(entries, files.get(0), true, new ImportProgress(entries.size(), listener));
+        } catch (InterruptedIOException e) {
+            // 已暂存的记录已撤销
+            return new ImportResult(false, 0, null, "Import cancelled");
+        } catch (IOException e) {
+            return new ImportResult(false, 0, null, "Batch import failed: " + e.getMessage());
+        } finally {
+            for (ZipFile zip : archives) {
+                try {
+                    zip.close();
+                } catch (IOException e) {
+                    System.err.println("Cannot close archive: " + e.getMessage());
                 }
             }
         }
-        return recordsImported;
     }
 
-    private int importAlipay(File file, String encoding) throws IOException {
-        int recordsImported = 0;
-        boolean firstRowSkipped = false;
+    /**
+     * 判断是否为可以导入的账单文件
+     */
+    public static boolean isStatementFile(File file) {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        return file.isFile() && (name.endsWith(".csv") || name.endsWith(".xlsx")
+                || name.endsWith(".zip") || name.endsWith(".gz"));
+    }
 
-        System.out.println("开始导入支付宝数据...");
-        System.out.println("文件路径: " + file.getAbsolutePath());
-        System.out.println("使用编码: " + encoding);
+    /**
+     * 导入zip压缩包中的所有账单，直接从压缩流读取，不解压到临时目录
+     */
+    private ImportResult importArchive(File file) throws IOException {
+        try (ZipFile zip = new ZipFile(file)) {
+            List<BatchEntry> entries = archiveEntries(zip);
+            if (entries.isEmpty()) {
+                return new ImportResult(false, 0, null, "No statements found in " + file.getName());
+            }
+            return importBatch(entries, file, false, null);
+        }
+    }
 
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(new FileInputStream(file), encoding))) {
+    private List<BatchEntry> archiveEntries(ZipFile zip) {
+        List<BatchEntry> entries = new ArrayList<>();
+        List<String> skipped = new ArrayList<>();
+        for (ZipEntry entry : Collections.list(zip.entries())) {
+            if (entry.isDirectory()) {
+                continue;
+            }
+            if (isStatementEntry(entry)) {
+                entries.add(new BatchEntry(entry.getName(),
+                        (batch, progress, errors) -> importArchiveEntry(zip, entry, batch, progress, errors)));
+            } else {
+                skipped.add(entry.getName());
+            }
+        }
+        if (!skipped.isEmpty()) {
+            System.out.println("跳过压缩包中的非账单文件: " + String.join(", ", skipped));
+        }
+        return entries;
+    }
 
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] rowData = parseCsvLine(line);
-                if (rowData.length >= 7 && !isEmptyRow(rowData)) {
-                    if (!firstRowSkipped) {
-                        firstRowSkipped = true;
-                        continue;
+    // 压缩包中可以导入的账单：CSV、XLSX和.gz压缩的CSV，不支持嵌套的zip
+    private static boolean isStatementEntry(ZipEntry entry) {
+        String name = entry.getName().toLowerCase(Locale.ROOT);
+        return name.endsWith(".csv") || name.endsWith(".xlsx") || name.endsWith(".gz");
+    }
+
+    /**
+     * 并行解析一组账单
+     * 包中有需要AI分类的账单（支付宝）时，解析完成后统一保存并分类
+     *
+     * @param checkpointKey 用于记录分类进度的文件
+     * @param commit        解析完成后是否立即提交到用户交易文件
+     * @param progress      进度，可以为null
+     */
+    private ImportResult importBatch(List<BatchEntry> entries, File checkpointKey, boolean commit,
+            ImportProgress progress) throws IOException {
+        int firstImported = staging.size();
+        ParseErrorReport errorReport = newErrorReport();
+        FingerprintIndex.Batch batch = fingerprints.newBatch();
+        ExecutorService pool = Executors.newFixedThreadPool(
+                Math.min(entries.size(), Runtime.getRuntime().availableProcessors()));
+        List<Future<EntryResult>> futures = new ArrayList<>();
+        try {
+            for (BatchEntry entry : entries) {
+                futures.add(pool.submit(() -> {
+                    ImportProgress.FileProgress fileProgress = progress != null ? progress.fileStarted(entry.name) : null;
+                    try {
+                        return entry.task.run(batch, fileProgress, errorReport);
+                    } finally {
+                        if (fileProgress != null) {
+                            fileProgress.finished();
+                        }
                     }
+                }));
+            }
 
-                    Transaction transaction = createAlipayTransaction(rowData);
-                    transactions.add(transaction);
-                    recordsImported++;
-                    System.out.println("已导入交易: " + transaction);
+            int recordsImported = 0;
+            int duplicates = 0;
+            boolean needsCategorizing = false;
+            Set<String> encodings = new LinkedHashSet<>();
+            List<EntryResult> results = new ArrayList<>();
+            List<String> errors = new ArrayList<>();
+            List<String> failedFiles = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    EntryResult result = futures.get(i).get();
+                    results.add(result);
+                    recordsImported += result.recordsImported;
+                    duplicates += result.duplicates;
+                    needsCategorizing |= result.importer.isCheckpointed();
+                    encodings.add(result.encoding);
+                } catch (ExecutionException e) {
+                    failedFiles.add(entries.get(i).name);
+                    errors.add(entries.get(i).name + ": " + e.getCause().getMessage());
                 }
             }
+            if (!failedFiles.isEmpty()) {
+                // 各文件的记录在暂存区中交错，无法只撤销失败的文件，整批撤销；会话没有结束，指纹不会保留
+                errors.forEach(error -> System.err.println("Failed to import " + error));
+                staging.truncate(firstImported);
+                showPage(firstImported / PREVIEW_PAGE_SIZE);
+                return new ImportResult(false, 0, null, String.join("\n", errors), 0, 0, null, failedFiles);
+            }
+            for (EntryResult result : results) {
+                fingerprints.endSession(result.session);
+            }
+
+            if (commit || needsCategorizing) {
+                appendToCSV(staging);
+                fingerprints.commitPending();
+            }
+            if (needsCategorizing) {
+                // 只记录分类进度；中断后重新导入时已保存的记录会被当作重复跳过
+                ImportCheckpoint checkpoint = ImportCheckpoint.open(currentUser, checkpointKey);
+                File storeFile = new File(currentUser + "_transactions.csv");
+                checkpoint.recordParsed(0, 0, ids.lastIssued(), storeFile.length(),
+                        checkpoint.getRowsImported() + recordsImported);
+                checkpoint.startCategorizing();
+                categorizeImported(checkpoint, checkpoint.getRowsImported());
+                loadStagingFromFile();
+                firstImported = 0;
+            }
+
+            showPage(firstImported / PREVIEW_PAGE_SIZE);
+            reportErrors(errorReport);
+            return new ImportResult(true, recordsImported, String.join("/", encodings), null, duplicates,
+                    errorReport.getErrorCount(), errorReport.getRejectFile());
+        } catch (InterruptedException e) {
+            // 等解析线程停止后撤销已暂存的记录，各文件的会话没有结束，指纹不会保留
+            pool.shutdownNow();
+            awaitQuietly(pool);
+            staging.truncate(firstImported);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import cancelled");
+        } finally {
+            pool.shutdownNow();
+            errorReport.close();
         }
+    }
 
-        System.out.println("导入完成，共导入 " + recordsImported + " 条记录");
+    private static void awaitQuietly(ExecutorService pool) {
+        try {
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-        // 先保存所有导入的数据到文件
-        if (recordsImported > 0) {
-            System.out.println("保存导入的数据到文件...");
-            saveToCSV();
+    private EntryResult importFileEntry(File file, FingerprintIndex.Batch batch, ImportProgress.FileProgress progress,
+            ParseErrorReport errors) throws IOException {
+        try (RowSource source = openRows(file, 0)) {
+            return importEntry(file.getName(), source, batch, progress, errors);
+        }
+    }
 
-            // 然后对未分类的交易进行AI分类
-            System.out.println("开始AI分类...");
-            categorizeUncategorizedTransactions();
+    private EntryResult importArchiveEntry(ZipFile zip, ZipEntry entry, FingerprintIndex.Batch batch,
+            ImportProgress.FileProgress progress, ParseErrorReport errors) throws IOException {
+        try (RowSource source = openEntry(zip, entry)) {
+            return importEntry(entry.getName(), source, batch, progress, errors);
         }
+    }
 
-        reloadTransactionsFromFile();
-        return recordsImported;
+    private EntryResult importEntry(String name, RowSource source, FingerprintIndex.Batch batch,
+            ImportProgress.FileProgress progress, ParseErrorReport errors) throws IOException {
+        List<String[]> head = readHead(source);
+        StatementImporter importer = StatementImporters.select(head);
+        System.out.println(name + " 识别的账单格式: " + importer.getName());
+
+        // 会话在整批成功后才结束
+        FingerprintIndex.Session session = batch.newSession();
+        int recordsImported = importRows(importer, new ImportContext(currentUser, ids, name, errors),
+                source, head, session, progress, null);
+        return new EntryResult(importer, source.getEncoding(), recordsImported, session);
     }
 
-    private void categorizeUncategorizedTransactions() {
-        // 从文件中读取所有交易记录
-        List<Transaction> allTransactions = new ArrayList<>();
-        File file = new File(currentUser + "_transactions.csv");
+    private static boolean isArchive(File file) {
+        return file.getName().toLowerCase(Locale.ROOT).endsWith(".zip");
+    }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            boolean isFirstLine = true;
+    private static boolean isGzip(File file) {
+        return file.getName().toLowerCase(Locale.ROOT).endsWith(".gz");
+    }
 
-            while ((line = reader.readLine()) != null) {
-                if (isFirstLine) {
-                    isFirstLine = false;
-                    continue;
-                }
+    /**
+     * 打开文件的字节流，.gz文件边读边解压
+     */
+    private static InputStream openStream(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        return isGzip(file) ? gunzip(in) : in;
+    }
 
-                String[] data = line.split(",");
-                if (data.length >= 7) {
-                    Transaction transaction = new Transaction(
-                            Integer.parseInt(data[0]),
-                            data[1],
-                            data[2],
-                            LocalDate.parse(data[3]),
-                            Double.parseDouble(data[4]),
-                            data[5],
-                            data[6]);
-                    allTransactions.add(transaction);
-                }
-            }
+    private static InputStream gunzip(InputStream in) throws IOException {
+        try {
+            return new GZIPInputStream(in, 64 * 1024);
         } catch (IOException e) {
-            e.printStackTrace();
-            return;
+            in.close();
+            throw e;
         }
+    }
 
-        // 找出所有未分类的交易
-        List<Transaction> uncategorizedTransactions = allTransactions.stream()
-                .filter(t -> "Uncategorized".equals(t.getCategory()))
-                .collect(Collectors.toList());
+    /**
+     * 打开账单的行来源
+     *
+     * @param position 起始位置：CSV为字节偏移量（.gz为解压后的偏移量），XLSX为已读取的行数
+     */
+    static RowSource openRows(File file, long position) throws IOException {
+        if (XlsxRowSource.isWorkbook(file)) {
+            return XlsxRowSource.open(file, position);
+        }
+        return CsvRowSource.open(openStream(file), position);
+    }
 
-        if (!uncategorizedTransactions.isEmpty()) {
-            try {
-                System.out.println("开始对 " + uncategorizedTransactions.size() + " 条未分类交易进行AI分类");
-                // 调用AI分类服务
-                List<String> categories = getCategoriesFromAI(uncategorizedTransactions);
+    /**
+     * 打开压缩包中账单的行来源，按与 {@link #openRows} 相同的扩展名分派；
+     * CSV直接从压缩流检测编码并解析，整个条目只解压一次
+     */
+    static RowSource openEntry(ZipFile zip, ZipEntry entry) throws IOException {
+        File name = new File(entry.getName());
+        InputStream in = zip.getInputStream(entry);
+        if (XlsxRowSource.isWorkbook(name)) {
+            return XlsxRowSource.open(in);
+        }
+        return CsvRowSource.open(isGzip(name) ? gunzip(in) : in, 0);
+    }
 
-                // 更新交易类别
-                for (int i = 0; i < uncategorizedTransactions.size(); i++) {
-                    uncategorizedTransactions.get(i).setCategory(categories.get(i));
+    private List<String[]> readHead(RowSource source) throws IOException {
+        List<String[]> head = new ArrayList<>();
+        String[] row;
+        while (head.size() < SNIFF_ROWS && (row = source.next()) != null) {
+            head.add(row);
+        }
+        return head;
+    }
+
+    /**
+     * 跳过表头之前的内容，返回表头行在head中的位置；表头不在开头的若干行中时返回-1
+     */
+    private int findHeader(StatementImporter importer, List<String[]> head) {
+        for (int i = 0; i < head.size(); i++) {
+            if (importer.isHeader(head.get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param preview 导入过程中补充预览表格，批量并行导入时为null
+     */
+    private int importRows(StatementImporter importer, ImportContext context, RowSource source,
+            List<String[]> head, FingerprintIndex.Session session, ImportProgress.FileProgress progress,
+            PreviewFeed preview) throws IOException {
+        int recordsImported = 0;
+        StatementImporter.RowParser parser = null;
+        Iterator<String[]> buffered = head.iterator();
+
+        String[] rowData;
+        long line = 0;
+        while ((rowData = buffered.hasNext() ? buffered.next() : source.next()) != null) {
+            checkCancelled();
+            line++;
+            if (parser == null) {
+                if (importer.isHeader(rowData)) {
+                    parser = importer.newParser(rowData, context);
                 }
+                continue;
+            }
 
-                System.out.println("AI分类完成，准备保存更新后的交易记录");
-
-                // 保存所有交易记录（包括更新后的类别）
-                try (BufferedWriter writer = new BufferedWriter(
-                        new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
-
-                    // 写入标题行
-                    writer.write("id,username,source,date,amount,category,description");
-                    writer.newLine();
-
-                    // 写入所有交易记录
-                    for (Transaction transaction : allTransactions) {
-                        String line = String.format("%d,%s,%s,%s,%.2f,%s,%s",
-                                transaction.getId(),
-                                transaction.getUsername(),
-                                transaction.getSource(),
-                                transaction.getDate().format(DateTimeFormatter.ISO_DATE),
-                                transaction.getAmount(),
-                                transaction.getCategory(),
-                                transaction.getDescription());
-                        writer.write(line);
-                        writer.newLine();
-                    }
+            Transaction transaction = parseRow(parser, context, line, rowData);
+            if (transaction != null && session.accept(transaction)) {
+                staging.add(transaction);
+                recordsImported++;
+                if (progress != null) {
+                    progress.rowImported();
+                }
+                if (preview != null) {
+                    preview.offer(transaction);
                 }
-                System.out.println("文件更新完成");
-            } catch (Exception e) {
-                e.printStackTrace();
             }
-        } else {
-            System.out.println("没有需要分类的交易记录");
         }
+        if (preview != null) {
+            preview.flush();
+        }
+        return recordsImported;
+    }
 
-        reloadTransactionsFromFile();
+    private static void checkCancelled() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Import cancelled");
+        }
     }
 
-    private List<String> getCategoriesFromAI(List<Transaction> transactions) throws Exception {
-        // 预定义的类别列表
-        List<String> predefinedCategories = Arrays.asList(
-                "Food & Dining",
-                "Shopping",
-                "Transportation",
-                "Entertainment",
-                "Bills & Utilities",
-                "Health & Medical",
-                "Travel",
-                "Education",
-                "Personal Care",
-                "Gifts & Donations",
-                "Investments",
-                "Income",
-                "Other");
+    /**
+     * 解析一行，格式错误由解析器记录到错误报告；解析器之外的意外异常也只记录原因，不打印堆栈
+     */
+    private Transaction parseRow(StatementImporter.RowParser parser, ImportContext context, long line,
+            String[] rowData) {
+        context.startRow(line, rowData);
+        try {
+            return parser.parse(rowData);
+        } catch (RuntimeException e) {
+            return context.reject(0, e.toString());
+        }
+    }
 
-        // 准备发送给AI的数据
-        List<Map<String, String>> transactionData = transactions.stream()
-                .map(t -> {
-                    Map<String, String> data = new HashMap<>();
-                    data.put("date", t.getDate().toString());
-                    data.put("amount", String.valueOf(t.getAmount()));
-                    data.put("description", t.getDescription());
-                    return data;
-                })
-                .collect(Collectors.toList());
+    private ParseErrorReport newErrorReport() {
+        return new ParseErrorReport(ParseErrorReport.DEFAULT_MAX_ERRORS, new File(currentUser + "_import_rejects.csv"));
+    }
 
-        // TODO: 调用DeepSeek API
-        // 这里需要实现实际的API调用
-        // 返回分类结果列表
-        return callDeepSeekAPI(transactionData, predefinedCategories);
+    private static void reportErrors(ParseErrorReport errors) {
+        if (errors.hasErrors()) {
+            System.out.println("跳过无法解析的行: " + errors.summary());
+        }
     }
 
-    private List<String> callDeepSeekAPI(List<Map<String, String>> transactions, List<String> categories)
-            throws Exception {
-        DeepSeekCategoryService categoryService = new DeepSeekCategoryService();
+    /**
+     * 带断点的导入：定期把解析结果提交到用户文件并记录读取位置，导入后进行AI分类
+     */
+    private int importCheckpointed(File file, StatementImporter importer, ImportContext context,
+            RowSource source, List<String[]> head, FingerprintIndex.Session session, PreviewFeed preview)
+            throws IOException {
+        ImportCheckpoint checkpoint = ImportCheckpoint.open(currentUser, file);
+        int recordsImported = checkpoint.getRowsImported();
 
-        // 准备描述和金额列表
-        List<String> descriptions = transactions.stream()
-                .map(t -> t.get("description"))
-                .collect(Collectors.toList());
+        System.out.println("开始导入" + importer.getName() + "数据...");
+        System.out.println("文件路径: " + file.getAbsolutePath());
+        System.out.println("使用编码: " + source.getEncoding());
 
-        List<String> amounts = transactions.stream()
-                .map(t -> t.get("amount"))
-                .collect(Collectors.toList());
+        if (checkpoint.isResumed()) {
+            System.out.println("从断点继续导入: 偏移量 " + checkpoint.getByteOffset()
+                    + ", 已导入 " + recordsImported + " 条记录");
+            ids.advancePast(checkpoint.getLastId());
+        }
 
-        // 使用现有的服务进行批量分类
-        List<String> results = categoryService.classifyTransactionsAsync(descriptions, amounts).get();
+        if (checkpoint.getPhase() == ImportCheckpoint.Phase.PARSING) {
+            File storeFile = new File(currentUser + "_transactions.csv");
+            if (checkpoint.isResumed()) {
+                // 丢弃上次最后一个断点之后写入了一半的数据，并按截断后的文件同步指纹索引
+                truncateStore(storeFile, checkpoint.getStoreLength());
+                fingerprints.refresh();
+            } else {
+                checkpoint.recordParsed(0, 0, ids.lastIssued(), storeFile.length(), 0);
+            }
 
-        // 关闭服务
-        categoryService.shutdown();
+            int headerIndex = findHeader(importer, head);
+            StatementImporter.RowParser parser = importer.newParser(
+                    headerIndex >= 0 ? head.get(headerIndex) : new String[0], context);
+            List<String[]> buffered = headerIndex >= 0 ? head.subList(headerIndex + 1, head.size()) : head;
 
-        return results;
-    }
+            RowSource rows = source;
+            if (checkpoint.getByteOffset() > 0) {
+                // 从断点位置继续读取，开头的行只用于定位表头
+                rows = openRows(file, checkpoint.getByteOffset());
+                buffered = new ArrayList<>();
+            }
+
+            int sinceCheckpoint = 0;
+            // 从断点继续时行号接着断点记录的行号
+            long line = rows == source ? Math.max(0, headerIndex + 1) : checkpoint.getLineNumber();
+            try {
+                Iterator<String[]> bufferedRows = buffered.iterator();
+                String[] rowData;
+                while ((rowData = bufferedRows.hasNext() ? bufferedRows.next() : rows.next()) != null) {
+                    checkCancelled();
+                    Transaction transaction = parseRow(parser, context, ++line, rowData);
+                    if (transaction == null || !session.accept(transaction)) {
+                        continue;
+                    }
+                    staging.add(transaction);
+                    recordsImported++;
+                    preview.offer(transaction);
+
+                    // 定期提交到用户文件并记录断点；开头缓冲的行读完之后位置才准确
+                    if (++sinceCheckpoint >= CHECKPOINT_INTERVAL && !bufferedRows.hasNext()) {
+                        appendToCSV(staging);
+                        checkpoint.recordParsed(rows.position(), line, ids.lastIssued(),
+                                storeFile.length(), recordsImported);
+                        sinceCheckpoint = 0;
+                    }
+                }
 
-    private Transaction createRegularTransaction(String[] rowData) {
-        long id = nextId.getAndIncrement();
-        String user = rowData.length > 0 ? rowData[0].trim() : currentUser;
-        String source = rowData.length > 1 ? rowData[1].trim() : "import";
-        LocalDate date = rowData.length > 2 ? LocalDate.parse(rowData[2].trim()) : LocalDate.now();
-        double amount = rowData.length > 3 ? Double.parseDouble(rowData[3].trim()) : 0.0;
-        String category = rowData.length > 4 ? rowData[4].trim() : "Uncategorized";
-        String description = rowData.length > 5 ? rowData[5].trim() : "";
+                preview.flush();
 
-        return new Transaction((int) id, user, source, date, amount, category, description);
-    }
+                // 先保存剩余导入的数据到文件（连同暂存区中尚未保存的记录）
+                if (staging.hasPending()) {
+                    appendToCSV(staging);
+                }
+                checkpoint.recordParsed(rows.position(), line, ids.lastIssued(), storeFile.length(),
+                        recordsImported);
+            } finally {
+                if (rows != source) {
+                    rows.close();
+                }
+            }
+            fingerprints.endSession(session);
+            fingerprints.commitPending();
 
+            System.out.println("导入完成，共导入 " + recordsImported + " 条记录");
+            checkpoint.startCategorizing();
+        }
 
-    private Transaction createWechatTransaction(String[] rowData) {
-        String processedDate = processDate(rowData[0]);
+        // 然后对未分类的交易进行AI分类
+        categorizeImported(checkpoint, recordsImported);
 
-        // 处理金额，并根据交易类型调整符号
-        double amount = Double.parseDouble(processAmount(rowData[5]));
-        if ("支出".equals(rowData[4])) {
-            amount = -amount;
+        loadStagingFromFile();
+        return recordsImported;
+    }
+
+    /**
+     * 把未分类的交易交给后台分类，导入不等待分类完成
+     */
+    private void categorizeImported(ImportCheckpoint checkpoint, int recordsImported) {
+        if (recordsImported == 0 || queueUncategorizedTransactions()) {
+            checkpoint.complete();
         }
-        String processedAmount = processAmount(String.valueOf(amount));
+    }
 
-        return new Transaction(
-                (int) nextId.getAndIncrement(),
-                currentUser,
-                "wechat",
-                LocalDate.parse(processedDate),
-                Double.parseDouble(processedAmount),
-                "Uncategorized",
-                rowData[1] + rowData[2]);
+    private void truncateStore(File storeFile, long length) throws IOException {
+        if (length < 0 || !storeFile.exists() || storeFile.length() <= length) {
+            return;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(storeFile, "rw")) {
+            raf.setLength(length);
+        }
     }
 
-    private Transaction createAlipayTransaction(String[] rowData) {
-        String processedDate = processDate(rowData[0]);
+    /**
+     * 把用户文件中所有未分类的交易放入后台分类队列并启动后台分类
+     *
+     * @return 是否已全部入队
+     */
+    private boolean queueUncategorizedTransactions() {
+        File file = new File(currentUser + "_transactions.csv");
+        List<Integer> uncategorized = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            TransactionSchema schema = TransactionSchema.fromHeader(reader.readLine());
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = schema.split(line);
+                int id = schema.id(parts);
+                if (id >= 0 && "Uncategorized".equals(schema.get(parts, TransactionSchema.Field.CATEGORY))) {
+                    uncategorized.add(id);
+                }
+            }
+            CategorizationQueue.forUser(currentUser).enqueue(uncategorized);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+
+        if (uncategorized.isEmpty()) {
+            System.out.println("没有需要分类的交易记录");
+        } else {
+            System.out.println(uncategorized.size() + " 条未分类交易转入后台分类");
+            CategorizationWorker.start(currentUser);
+        }
+        return true;
+    }
 
-        // 处理金额，并根据交易类型调整符号
-        double amount = Double.parseDouble(processAmount(rowData[6]));
-        if ("支出".equals(rowData[4])) {
-            amount = -amount;
-        }
-        String processedAmount = processAmount(String.valueOf(amount));
-
-        return new Transaction(
-                (int) nextId.getAndIncrement(),
-                currentUser,
-                "alipay",
-                LocalDate.parse(processedDate),
-                Double.parseDouble(processedAmount),
-                "Uncategorized",
-                rowData[1] + rowData[4]);
+    /**
+     * 后台分类完成一批后调用：更新当前页中仍未分类的交易，需要在JavaFX线程中调用
+     */
+    public void applyCategories(Map<Integer, String> categories) {
+        if (categories.isEmpty()) {
+            return;
+        }
+        for (Transaction transaction : transactions) {
+            String category = categories.get(transaction.getId());
+            if (category != null && "Uncategorized".equals(transaction.getCategory())) {
+                transaction.setCategory(category);
+            }
+        }
     }
+
     public void saveToCSV() throws IOException {
-        if (transactions.isEmpty()) {
+        if (!staging.hasPending()) {
             System.out.println("没有交易记录需要保存");
             return; // 如果没有交易记录，不创建文件
         }
 
+        appendToCSV(staging);
+        fingerprints.commitPending();
+        staging.clear();
+        pageIndex = 0;
+        transactions.clear();
+    }
+
+    /**
+     * 将暂存区中尚未保存的记录流式追加到用户交易文件
+     * 整批记录要么全部写入，要么在失败时把文件恢复到写入前的长度
+     */
+    private void appendToCSV(ImportStaging rows) throws IOException {
         File file = new File(currentUser + "_transactions.csv");
+        // 后台分类替换文件期间不能追加，否则追加的记录会随旧文件一起被替换掉
+        synchronized (TransactionFileMigrator.lockFor(file)) {
+            appendToCSV(file, rows);
+        }
+    }
+
+    private void appendToCSV(File file, ImportStaging rows) throws IOException {
+        TransactionFileMigrator.ensureCurrent(file);
         boolean fileExists = file.exists();
+        long originalLength = file.length();
         System.out.println("保存交易记录到文件: " + file.getAbsolutePath());
         System.out.println("文件是否存在: " + fileExists);
-        System.out.println("待保存的交易记录数: " + transactions.size());
+        System.out.println("暂存记录数: " + rows.size());
 
         try (BufferedWriter writer = new BufferedWriter(
-                new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8))) {
+                new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8), 64 * 1024)) {
 
             // 只在文件不存在时写入标题行
             if (!fileExists) {
-                writer.write("id,username,source,date,amount,category,description");
+                writer.write(TransactionSchema.STORE_HEADER);
                 writer.newLine();
                 System.out.println("写入标题行");
             }
 
-            for (Transaction transaction : transactions) {
+            rows.forEachPending(transaction -> {
                 String line = String.format("%d,%s,%s,%s,%.2f,%s,%s",
                         transaction.getId(),
                         transaction.getUsername(),
@@ -426,14 +803,19 @@ public class DataImportModel {
                         transaction.getDescription());
                 writer.write(line);
                 writer.newLine();
-                System.out.println("写入交易记录: " + line);
+            });
+        } catch (IOException | RuntimeException e) {
+            // 回滚本次写入的部分记录
+            if (fileExists) {
+                truncateStore(file, originalLength);
+            } else {
+                file.delete();
             }
+            throw e;
         }
 
+        rows.markCommitted();
         System.out.println("保存完成");
-        // 只有在成功保存交易记录后才保存nextId
-        saveNextId();
-        transactions.clear();
     }
 
     public void downloadTemplate(File file) throws IOException {
@@ -449,187 +831,138 @@ public class DataImportModel {
         }
     }
 
-    // Utility methods
-    private String detectFileEncoding(File file) {
-        try {
-            UniversalDetector detector = new UniversalDetector(null);
-            byte[] buf = new byte[4096];
-            try (FileInputStream fis = new FileInputStream(file)) {
-                int nread;
-                while ((nread = fis.read(buf)) > 0 && !detector.isDone()) {
-                    detector.handleData(buf, 0, nread);
-                }
-            }
-            detector.dataEnd();
-
-            String encoding = detector.getDetectedCharset();
-            detector.reset();
+    public void reloadTransactionsFromFile() {
+        loadStagingFromFile();
+        showPage(0);
+    }
 
-            if (encoding != null) {
-                if (encoding.equalsIgnoreCase("GB-18030")) {
-                    return "GB18030";
-                }
-                if (encoding.equalsIgnoreCase("Big5")) {
-                    return "MS950";
+    /**
+     * 将用户交易文件读入暂存区，仅用于显示，这些记录不会被再次保存
+     */
+    private void loadStagingFromFile() {
+        staging.clear();
+        long maxId = 0;
+        File file = new File(currentUser + "_transactions.csv");
+        if (!file.exists())
+            return;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            TransactionSchema schema = TransactionSchema.fromHeader(reader.readLine());
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Transaction transaction = schema.toTransaction(schema.split(line));
+                if (transaction != null && transaction.getId() >= 0) {
+                    staging.add(transaction);
+                    maxId = Math.max(maxId, transaction.getId());
                 }
-                return encoding;
             }
         } catch (IOException e) {
-            System.err.println("Error detecting encoding: " + e.getMessage());
+            e.printStackTrace();
         }
-        return null;
+        staging.markCommitted();
+        ids.advancePast(maxId);
     }
 
-    private FileType detectFileType(BufferedReader reader) throws IOException {
-        reader.mark(8192);
-        String line;
-        int lineCount = 0;
-        boolean hasAlipayMarker = false;
-        boolean hasWechatMarker = false;
+    /**
+     * 导入过程中的预览：先尽快显示开头的PREVIEW_ROWS行，之后按行数或时间间隔
+     * 继续追加到表格，直到填满导入开始所在的页，其余的行通过翻页查看
+     */
+    private class PreviewFeed {
+        private final int pageEnd;
+        private final List<Transaction> pending = new ArrayList<>();
+        private int shown;
+        private long lastFlush = System.nanoTime();
+
+        PreviewFeed(int firstImported) {
+            int page = firstImported / PREVIEW_PAGE_SIZE;
+            this.pageEnd = (page + 1) * PREVIEW_PAGE_SIZE;
+            this.shown = firstImported;
+            pageIndex = page;
+            try {
+                publish(staging.page(page * PREVIEW_PAGE_SIZE, firstImported - page * PREVIEW_PAGE_SIZE), true);
+            } catch (IOException e) {
+                System.err.println("Cannot read staged transactions: " + e.getMessage());
+            }
+        }
 
-        while ((line = reader.readLine()) != null && lineCount < 10) {
-            if (line.contains("支付宝")) {
-                hasAlipayMarker = true;
+        void offer(Transaction transaction) {
+            if (shown + pending.size() >= pageEnd) {
+                return;
             }
-            if (line.contains("微信支付账单明细")) {
-                hasWechatMarker = true;
+            pending.add(transaction);
+            if (pending.size() >= PREVIEW_ROWS || System.nanoTime() - lastFlush >= PREVIEW_FLUSH_NANOS
+                    || shown + pending.size() == pageEnd) {
+                flush();
             }
-            lineCount++;
         }
 
-        reader.reset();
-
-        if (hasAlipayMarker)
-            return FileType.ALIPAY;
-        if (hasWechatMarker)
-            return FileType.WECHAT;
-        return FileType.REGULAR;
-    }
-
-    private String[] parseCsvLine(String line) {
-        List<String> tokens = new ArrayList<>();
-        boolean inQuotes = false;
-        StringBuilder sb = new StringBuilder();
-        char[] chars = line.toCharArray();
-
-        for (int i = 0; i < chars.length; i++) {
-            char c = chars[i];
-            if (c == '"') {
-                if (i < chars.length - 1 && chars[i + 1] == '"') {
-                    sb.append('"');
-                    i++;
-                } else {
-                    inQuotes = !inQuotes;
-                }
-            } else if (c == ',' && !inQuotes) {
-                tokens.add(sb.toString().trim());
-                sb.setLength(0);
-            } else {
-                sb.append(c);
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
             }
+            publish(new ArrayList<>(pending), false);
+            shown += pending.size();
+            pending.clear();
+            lastFlush = System.nanoTime();
         }
-        tokens.add(sb.toString().trim());
-        return tokens.toArray(new String[0]);
     }
 
-    private boolean isEmptyRow(String[] rowData) {
-        for (String cell : rowData) {
-            if (cell != null && !cell.trim().isEmpty()) {
-                return false;
+    /**
+     * 将导入结果分批提交到表格数据源
+     * 后台线程调用时通过Platform.runLater在FX线程上以少量addAll完成，避免逐行刷新表格
+     *
+     * @param rows    要显示的交易
+     * @param replace 是否替换表格中现有的内容
+     */
+    private void publish(List<Transaction> rows, boolean replace) {
+        if (Platform.isFxApplicationThread()) {
+            if (replace) {
+                transactions.setAll(rows);
+            } else {
+                transactions.addAll(rows);
             }
+            return;
         }
-        return true;
-    }
 
-    private String processDate(String rawDate) {
-        if (rawDate != null && rawDate.length() >= 10) {
-            return rawDate.substring(0, 10);
+        if (replace) {
+            Platform.runLater(transactions::clear);
         }
-        return rawDate;
-    }
-
-    private String processAmount(String rawAmount) {
-        if (rawAmount == null || rawAmount.isEmpty()) {
-            return "0.00";
+        for (int from = 0; from < rows.size(); from += PUBLISH_BATCH_SIZE) {
+            List<Transaction> batch = rows.subList(from, Math.min(from + PUBLISH_BATCH_SIZE, rows.size()));
+            Platform.runLater(() -> transactions.addAll(batch));
         }
-        String processed = rawAmount.replace("¥", "").trim();
-        processed = processed.replace("￥", "").replace("$", "").replace("€", "").replace("£", "");
-        return processed;
     }
 
-    private void updateMaxId() {
-        long maxId = transactions.stream()
-                .mapToLong(Transaction::getId)
-                .max()
-                .orElse(0);
-        nextId.set(maxId + 1);
+    // Inner classes
+    private interface EntryTask {
+        EntryResult run(FingerprintIndex.Batch batch, ImportProgress.FileProgress progress, ParseErrorReport errors)
+                throws IOException;
     }
 
-    private void loadNextId() {
-        File file = new File(currentUser + "_nextId.txt");
-        if (file.exists()) {
-            try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-                String line = reader.readLine();
-                if (line != null && !line.isEmpty()) {
-                    long loadedId = Long.parseLong(line);
-                    nextId.set(loadedId > 0 ? loadedId : 1);
-                } else {
-                    nextId.set(1);
-                }
-            } catch (IOException | NumberFormatException e) {
-                nextId.set(1);
-            }
-        } else {
-            nextId.set(1);
-        }
-    }
+    private static class BatchEntry {
+        private final String name;
+        private final EntryTask task;
 
-    private void saveNextId() {
-        File file = new File(currentUser + "_nextId.txt");
-        if (!file.exists()) {
-            return; // 如果文件不存在，不创建新文件
-        }
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-            writer.write(String.valueOf(nextId.get()));
-        } catch (IOException e) {
-            System.err.println("Cannot save nextId: " + e.getMessage());
+        private BatchEntry(String name, EntryTask task) {
+            this.name = name;
+            this.task = task;
         }
     }
 
-    public void reloadTransactionsFromFile() {
-        transactions.clear();
-        File file = new File(currentUser + "_transactions.csv");
-        if (!file.exists())
-            return;
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            boolean isFirstLine = true;
-            while ((line = reader.readLine()) != null) {
-                if (isFirstLine) {
-                    isFirstLine = false;
-                    continue;
-                }
-                String[] data = line.split(",");
-                if (data.length >= 7) {
-                    Transaction transaction = new Transaction(
-                            Integer.parseInt(data[0]),
-                            data[1],
-                            data[2],
-                            LocalDate.parse(data[3]),
-                            Double.parseDouble(data[4]),
-                            data[5],
-                            data[6]);
-                    transactions.add(transaction);
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
+    private static class EntryResult {
+        private final StatementImporter importer;
+        private final String encoding;
+        private final int recordsImported;
+        private final int duplicates;
+        private final FingerprintIndex.Session session;
 
-    // Inner classes
-    public enum FileType {
-        ALIPAY, WECHAT, REGULAR
+        private EntryResult(StatementImporter importer, String encoding, int recordsImported,
+                FingerprintIndex.Session session) {
+            this.importer = importer;
+            this.encoding = encoding;
+            this.recordsImported = recordsImported;
+            this.duplicates = session.getDuplicates();
+            this.session = session;
+        }
     }
 
     public static class ImportResult {
@@ -637,12 +970,36 @@ public class DataImportModel {
         private final int recordsImported;
         private final String encoding;
         private final String errorMessage;
+        private final int duplicatesSkipped;
+        private final int rowsRejected;
+        private final File rejectFile;
+        private final List<String> failedFiles;
 
         public ImportResult(boolean success, int recordsImported, String encoding, String errorMessage) {
+            this(success, recordsImported, encoding, errorMessage, 0);
+        }
+
+        public ImportResult(boolean success, int recordsImported, String encoding, String errorMessage,
+                int duplicatesSkipped) {
+            this(success, recordsImported, encoding, errorMessage, duplicatesSkipped, 0, null);
+        }
+
+        public ImportResult(boolean success, int recordsImported, String encoding, String errorMessage,
+                int duplicatesSkipped, int rowsRejected, File rejectFile) {
+            this(success, recordsImported, encoding, errorMessage, duplicatesSkipped, rowsRejected, rejectFile,
+                    List.of());
+        }
+
+        public ImportResult(boolean success, int recordsImported, String encoding, String errorMessage,
+                int duplicatesSkipped, int rowsRejected, File rejectFile, List<String> failedFiles) {
             this.success = success;
             this.recordsImported = recordsImported;
             this.encoding = encoding;
             this.errorMessage = errorMessage;
+            this.duplicatesSkipped = duplicatesSkipped;
+            this.rowsRejected = rowsRejected;
+            this.rejectFile = rejectFile;
+            this.failedFiles = List.copyOf(failedFiles);
         }
 
         public boolean isSuccess() {
@@ -660,5 +1017,30 @@ public class DataImportModel {
         public String getErrorMessage() {
             return errorMessage;
         }
+
+        public int getDuplicatesSkipped() {
+            return duplicatesSkipped;
+        }
+
+        /**
+         * @return 无法解析而被跳过的行数
+         */
+        public int getRowsRejected() {
+            return rowsRejected;
+        }
+
+        /**
+         * @return 记录被跳过的行的文件，没有时为null
+         */
+        public File getRejectFile() {
+            return rejectFile;
+        }
+
+        /**
+         * @return 批量导入中无法读取的文件名；有文件失败时整批都不导入
+         */
+        public List<String> getFailedFiles() {
+            return failedFiles;
+        }
     }
 }
\ No newline at end of file
@@ -1,7 +1,10 @@
 package org.example.dataImport;
 
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyStringProperty;
 import javafx.geometry.HPos;
 import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
@@ -21,15 +24,26 @@ public class DataImportView {
     private TextField amountField;
     private TextField categoryField;
     private TextField descriptionField;
+    private Label pageLabel;
+    private VBox progressBox;
+    private ProgressBar progressBar;
+    private Label progressLabel;
+    private HBox categorizingBox;
+    private ProgressBar categorizingBar;
+    private Label categorizingLabel;
 
     // Event handlers (to be set by controller)
     private Runnable onImportCSV;
+    private Runnable onImportFolder;
     private Runnable onDownloadTemplate;
     private Runnable onSaveChanges;
     private Runnable onDeleteSelected;
     private Runnable onClearAll;
     private Runnable onAddRecord;
     private Runnable onBackToDashboard;
+    private Runnable onPreviousPage;
+    private Runnable onNextPage;
+    private Runnable onCancelCategorizing;
 
     public DataImportView(Stage stage) {
         this.stage = stage;
@@ -44,10 +58,13 @@ public class DataImportView {
 
         // Create components
         HBox buttonBox = createButtonBox();
+        progressBox = createProgressBox();
+        categorizingBox = createCategorizingBox();
         tableView = createTableView();
+        HBox pagerBox = createPagerBox();
         VBox formBox = createAddRecordForm();
 
-        mainLayout.getChildren().addAll(buttonBox, tableView, formBox);
+        mainLayout.getChildren().addAll(buttonBox, progressBox, categorizingBox, tableView, pagerBox, formBox);
 
         Scene scene = new Scene(mainLayout, 1000, 800);
         stage.setScene(scene);
@@ -57,6 +74,9 @@ public class DataImportView {
         Button importButton = new Button("Import CSV File");
         importButton.setOnAction(e -> { if (onImportCSV != null) onImportCSV.run(); });
 
+        Button folderButton = new Button("Import Folder");
+        folderButton.setOnAction(e -> { if (onImportFolder != null) onImportFolder.run(); });
+
         Button templateButton = new Button("Download CSV Template");
         templateButton.setOnAction(e -> { if (onDownloadTemplate != null) onDownloadTemplate.run(); });
 
@@ -74,12 +94,59 @@ public class DataImportView {
         backButton.setStyle("-fx-background-color: #4CAF50; -fx-text-fill: white;");
         backButton.setOnAction(e -> { if (onBackToDashboard != null) onBackToDashboard.run(); });
 
-        HBox buttonBox = new HBox(10, importButton, templateButton, saveButton,
+        HBox buttonBox = new HBox(10, importButton, folderButton, templateButton, saveButton,
                 deleteButton, backButton, clearButton);
         buttonBox.setPadding(new Insets(10));
         return buttonBox;
     }
 
+    private VBox createProgressBox() {
+        progressBar = new ProgressBar(0);
+        progressBar.setPrefWidth(400);
+
+        // 每个文件一行，文件较多时可以滚动查看
+        progressLabel = new Label();
+        ScrollPane scrollPane = new ScrollPane(progressLabel);
+        scrollPane.setMaxHeight(120);
+        scrollPane.setFitToWidth(true);
+
+        VBox box = new VBox(5, progressBar, scrollPane);
+        box.setVisible(false);
+        box.setManaged(false);
+        return box;
+    }
+
+    // 后台AI分类的进度，分类进行中时显示
+    private HBox createCategorizingBox() {
+        categorizingBar = new ProgressBar(0);
+        categorizingBar.setPrefWidth(200);
+        categorizingLabel = new Label();
+
+        Button cancelButton = new Button("Stop Categorizing");
+        cancelButton.setOnAction(e -> { if (onCancelCategorizing != null) onCancelCategorizing.run(); });
+
+        HBox box = new HBox(10, categorizingLabel, categorizingBar, cancelButton);
+        box.setAlignment(Pos.CENTER_LEFT);
+        box.setVisible(false);
+        box.setManaged(false);
+        return box;
+    }
+
+    private HBox createPagerBox() {
+        Button previousButton = new Button("Previous Page");
+        previousButton.setOnAction(e -> { if (onPreviousPage != null) onPreviousPage.run(); });
+
+        Button nextButton = new Button("Next Page");
+        nextButton.setOnAction(e -> { if (onNextPage != null) onNextPage.run(); });
+
+        pageLabel = new Label();
+        updatePageInfo(0, 1, 0);
+
+        HBox pagerBox = new HBox(10, previousButton, pageLabel, nextButton);
+        pagerBox.setAlignment(Pos.CENTER_LEFT);
+        return pagerBox;
+    }
+
     private TableView<Transaction> createTableView() {
         TableView<Transaction> table = new TableView<>();
         table.setEditable(true);
@@ -202,6 +269,40 @@ public class DataImportView {
                 .isPresent();
     }
 
+    /**
+     * 显示批量导入进度，绑定到后台任务的消息和进度
+     */
+    public void showImportProgress(ReadOnlyStringProperty message, ReadOnlyDoubleProperty progress) {
+        progressLabel.textProperty().bind(message);
+        progressBar.progressProperty().bind(progress);
+        progressBox.setVisible(true);
+        progressBox.setManaged(true);
+    }
+
+    public void hideImportProgress() {
+        progressLabel.textProperty().unbind();
+        progressBar.progressProperty().unbind();
+        progressBox.setVisible(false);
+        progressBox.setManaged(false);
+    }
+
+    /**
+     * 更新后台分类进度，剩余为0时隐藏
+     */
+    public void updateCategorizingProgress(int done, int remaining) {
+        boolean running = remaining > 0;
+        if (running) {
+            categorizingLabel.setText(String.format("AI categorizing: %d / %d", done, done + remaining));
+            categorizingBar.setProgress((double) done / (done + remaining));
+        }
+        categorizingBox.setVisible(running);
+        categorizingBox.setManaged(running);
+    }
+
+    public void updatePageInfo(int pageIndex, int pageCount, int rowCount) {
+        pageLabel.setText(String.format("Page %d / %d (%d records)", pageIndex + 1, pageCount, rowCount));
+    }
+
     public void clearForm() {
         datePicker.setValue(LocalDate.now());
         amountField.clear();
@@ -239,6 +340,10 @@ public class DataImportView {
         this.onImportCSV = handler;
     }
 
+    public void setOnImportFolder(Runnable handler) {
+        this.onImportFolder = handler;
+    }
+
     public void setOnDownloadTemplate(Runnable handler) {
         this.onDownloadTemplate = handler;
     }
@@ -262,4 +367,16 @@ public class DataImportView {
     public void setOnBackToDashboard(Runnable handler) {
         this.onBackToDashboard = handler;
     }
+
+    public void setOnPreviousPage(Runnable handler) {
+        this.onPreviousPage = handler;
+    }
+
+    public void setOnNextPage(Runnable handler) {
+        this.onNextPage = handler;
+    }
+
+    public void setOnCancelCategorizing(Runnable handler) {
+        this.onCancelCategorizing = handler;
+    }
 }
\ No newline at end of file
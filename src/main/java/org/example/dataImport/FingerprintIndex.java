@@ -0,0 +1,424 @@
+package org.example.dataImport;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.example.list.Transaction;
+import org.example.list.TransactionSchema;
+import org.example.utils.TextNormalizer;
+
+/**
+ * 用户交易指纹索引，用于导入时的重复检测
+ * 指纹由 (日期, 金额, 规范化描述, 来源) 计算得到，索引记录每个指纹在用户文件中出现的次数。
+ * 查询时先经过布隆过滤器，大部分新记录无需访问哈希表。
+ * 索引保存在 <user>_fingerprints.idx 中，并记录对应交易文件的长度和修改时间，
+ * 交易文件被其他途径修改后会自动重建。
+ */
+public class FingerprintIndex {
+
+    private static final int MAGIC = 0x46504958;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final File indexFile;
+    private final File storeFile;
+
+    // 已写入用户文件的指纹计数
+    private LongIntHashMap committed = new LongIntHashMap(1024);
+    // 已导入但尚未保存的指纹计数
+    private final LongIntHashMap pending = new LongIntHashMap(64);
+
+    private BloomFilter bloom;
+    private int bloomCapacity;
+
+    private FingerprintIndex(String username) {
+        this.indexFile = new File(username + "_fingerprints.idx");
+        this.storeFile = new File(username + "_transactions.csv");
+    }
+
+    /**
+     * 打开用户的指纹索引；索引不存在或已过期时从交易文件重建
+     */
+    public static FingerprintIndex open(String username) {
+        FingerprintIndex index = new FingerprintIndex(username);
+        index.refresh();
+        return index;
+    }
+
+    /**
+     * 交易文件在索引之外被修改（例如断点恢复时被截断）后重新同步索引，保留待保存的指纹
+     */
+    public synchronized void refresh() {
+        if (!load()) {
+            rebuild();
+        }
+    }
+
+    public static long fingerprint(Transaction transaction) {
+        return fingerprint(transaction.getDate(), transaction.getAmount(),
+                transaction.getDescription(), transaction.getSource());
+    }
+
+    /**
+     * 计算交易指纹（64位FNV-1a）
+     */
+    public static long fingerprint(LocalDate date, double amount, String description, String source) {
+        long hash = 0xcbf29ce484222325L;
+        hash = fnv(hash, date == null ? 0 : date.toEpochDay());
+        hash = fnv(hash, Math.round(amount * 100));
+        hash = fnv(hash, TextNormalizer.normalizeDescription(description));
+        hash = fnv(hash, source == null ? "" : source.trim().toLowerCase(Locale.ROOT));
+        return hash;
+    }
+
+    /**
+     * 开始一次导入的重复检测
+     */
+    public Session newSession() {
+        return new Session(new LongIntHashMap(256));
+    }
+
+    /**
+     * 开始一批并行导入的重复检测，同一批的各个文件共用已接受的指纹
+     */
+    public Batch newBatch() {
+        return new Batch();
+    }
+
+    /**
+     * 导入结束，被接受的记录计入待保存指纹
+     */
+    public synchronized void endSession(Session session) {
+        session.accepted.forEach(pending::add);
+    }
+
+    /**
+     * 待保存的记录已写入用户文件，合并到索引并持久化
+     */
+    public synchronized void commitPending() {
+        pending.forEach((fingerprint, count) -> {
+            committed.add(fingerprint, count);
+            bloomAdd(fingerprint);
+        });
+        pending.clear();
+        save();
+    }
+
+    /**
+     * 丢弃尚未保存的指纹（例如用户清空了预览）
+     */
+    public synchronized void clearPending() {
+        pending.clear();
+    }
+
+    /**
+     * 用户从预览中删除了记录，对应的待保存指纹不再占用重复名额
+     */
+    public synchronized void discardPending(List<Transaction> removed) {
+        for (Transaction transaction : removed) {
+            long fingerprint = fingerprint(transaction);
+            if (pending.get(fingerprint) > 0) {
+                pending.add(fingerprint, -1);
+            }
+        }
+    }
+
+    private synchronized int knownCount(long fingerprint) {
+        int count = pending.get(fingerprint);
+        if (bloom.mightContain(fingerprint)) {
+            count += committed.get(fingerprint);
+        }
+        return count;
+    }
+
+    private void bloomAdd(long fingerprint) {
+        if (committed.size() > bloomCapacity) {
+            rebuildBloom();
+        } else {
+            bloom.add(fingerprint);
+        }
+    }
+
+    private void rebuildBloom() {
+        bloomCapacity = Math.max(1024, committed.size() * 2);
+        bloom = new BloomFilter(bloomCapacity, FALSE_POSITIVE_RATE);
+        committed.forEach((fingerprint, count) -> bloom.add(fingerprint));
+    }
+
+    private boolean load() {
+        if (!indexFile.exists()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC
+                    || in.readLong() != storeFile.length()
+                    || in.readLong() != storeFile.lastModified()) {
+                return false;
+            }
+            int size = in.readInt();
+            LongIntHashMap loaded = new LongIntHashMap(size * 2);
+            for (int i = 0; i < size; i++) {
+                loaded.add(in.readLong(), in.readInt());
+            }
+            committed = loaded;
+            rebuildBloom();
+            return true;
+        } catch (IOException e) {
+            System.err.println("Rebuilding fingerprint index: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void rebuild() {
+        committed = new LongIntHashMap(1024);
+        if (storeFile.exists()) {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(storeFile), StandardCharsets.UTF_8))) {
+                TransactionSchema schema = TransactionSchema.fromHeader(reader.readLine());
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = schema.split(line);
+                    if (!schema.accepts(parts)) {
+                        continue;
+                    }
+                    // 无法解析的行不参与重复检测
+                    LocalDate date = schema.date(parts);
+                    double amount = schema.amount(parts);
+                    if (date != null && !Double.isNaN(amount)) {
+                        committed.add(fingerprint(date, amount, schema.get(parts, TransactionSchema.Field.DESCRIPTION),
+                                schema.get(parts, TransactionSchema.Field.SOURCE)), 1);
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Cannot scan transactions for fingerprints: " + e.getMessage());
+            }
+        }
+        rebuildBloom();
+        save();
+    }
+
+    private void save() {
+        File tmp = new File(indexFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeLong(storeFile.length());
+            out.writeLong(storeFile.lastModified());
+            out.writeInt(committed.size());
+            IOException[] failure = new IOException[1];
+            committed.forEach((fingerprint, count) -> {
+                try {
+                    out.writeLong(fingerprint);
+                    out.writeInt(count);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot save fingerprint index: " + e.getMessage());
+            return;
+        }
+        try {
+            Files.move(tmp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("Cannot save fingerprint index: " + e.getMessage());
+        }
+    }
+
+    private static long fnv(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash ^= (value >>> (i * 8)) & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long fnv(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            hash ^= c & 0xff;
+            hash *= 0x100000001b3L;
+            hash ^= c >>> 8;
+            hash *= 0x100000001b3L;
+        }
+        // 字段分隔符
+        hash ^= 0x1f;
+        hash *= 0x100000001b3L;
+        return hash;
+    }
+
+    /**
+     * 一批并行导入共用的重复检测状态，内容重叠的两个账单中相同的记录只导入一次
+     */
+    public class Batch {
+        private final LongIntHashMap accepted = new LongIntHashMap(1024);
+
+        /**
+         * 开始批中一个文件的重复检测，可以在不同线程中使用
+         */
+        public Session newSession() {
+            return new Session(accepted);
+        }
+    }
+
+    /**
+     * 单次导入的重复检测状态
+     * 文件内第n次出现的指纹，只有在用户文件中已存在的和本批已接受的相同记录少于n条时才导入，
+     * 因此同一账单中合法的重复交易（如同一天两笔相同金额的消费）不会被误删。
+     */
+    public class Session {
+        private final LongIntHashMap seen = new LongIntHashMap(256);
+        private final LongIntHashMap accepted = new LongIntHashMap(256);
+        // 本批所有文件已接受的指纹计数，检查和加入在它的锁内完成
+        private final LongIntHashMap batchAccepted;
+        private int duplicates;
+
+        private Session(LongIntHashMap batchAccepted) {
+            this.batchAccepted = batchAccepted;
+        }
+
+        /**
+         * @return 记录不是重复记录时返回true
+         */
+        public boolean accept(Transaction transaction) {
+            long fingerprint = fingerprint(transaction);
+            int occurrence = seen.add(fingerprint, 1);
+            synchronized (batchAccepted) {
+                if (occurrence <= knownCount(fingerprint) + batchAccepted.get(fingerprint)) {
+                    duplicates++;
+                    return false;
+                }
+                batchAccepted.add(fingerprint, 1);
+            }
+            accepted.add(fingerprint, 1);
+            return true;
+        }
+
+        public int getDuplicates() {
+            return duplicates;
+        }
+    }
+
+    /**
+     * 开放寻址的long到int计数表，避免装箱
+     */
+    static class LongIntHashMap {
+        private long[] keys;
+        private int[] values;
+        private int size;
+
+        LongIntHashMap(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected * 2) - 1) << 1;
+            keys = new long[capacity];
+            values = new int[capacity];
+        }
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); values[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * @return 增加后的计数，计数降到0时删除该项
+         */
+        int add(long key, int delta) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            for (; values[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    values[i] += delta;
+                    if (values[i] <= 0) {
+                        removeAt(i);
+                        return 0;
+                    }
+                    return values[i];
+                }
+            }
+            if (delta <= 0) {
+                return 0;
+            }
+            keys[i] = key;
+            values[i] = delta;
+            if (++size * 2 > keys.length) {
+                resize();
+            }
+            return delta;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            Arrays.fill(values, 0);
+            size = 0;
+        }
+
+        // 线性探测的后移删除，保持探测链连续
+        private void removeAt(int hole) {
+            int mask = keys.length - 1;
+            size--;
+            for (int j = (hole + 1) & mask; values[j] != 0; j = (j + 1) & mask) {
+                int home = slot(keys[j], mask);
+                boolean reachable = hole <= j ? (hole < home && home <= j) : (hole < home || home <= j);
+                if (!reachable) {
+                    keys[hole] = keys[j];
+                    values[hole] = values[j];
+                    hole = j;
+                }
+            }
+            values[hole] = 0;
+        }
+
+        void forEach(Entry action) {
+            for (int i = 0; i < keys.length; i++) {
+                if (values[i] != 0) {
+                    action.accept(keys[i], values[i]);
+                }
+            }
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != 0) {
+                    add(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+
+        interface Entry {
+            void accept(long key, int value);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package org.example.dataImport;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * 导入断点清单
+ * 每个被导入的文件对应一个清单，记录已解析的字节偏移量和行号、最后分配的ID、
+ * 用户交易文件在最近一次提交后的长度以及当前所处的阶段。
+ * 导入中断后再次导入同一文件时，从清单记录的位置继续。
+ */
+public class ImportCheckpoint {
+
+    public enum Phase {
+        PARSING, CATEGORIZING
+    }
+
+    private final File manifestFile;
+    private final String sourcePath;
+    private final long sourceLength;
+    private final long sourceModified;
+
+    private boolean resumed;
+    private Phase phase = Phase.PARSING;
+    private long byteOffset;
+    private long lineNumber;
+    private long lastId;
+    private long storeLength = -1;
+    private int rowsImported;
+
+    private ImportCheckpoint(String username, File source) {
+        String key = Integer.toHexString(source.getAbsolutePath().hashCode());
+        this.manifestFile = new File(username + "_import_" + key + ".manifest");
+        this.sourcePath = source.getAbsolutePath();
+        this.sourceLength = source.length();
+        this.sourceModified = source.lastModified();
+    }
+
+    /**
+     * 打开指定文件的导入清单
+     * 如果存在未完成的清单且源文件未被修改，则返回可恢复的断点；否则返回新的断点
+     */
+    public static ImportCheckpoint open(String username, File source) {
+        ImportCheckpoint checkpoint = new ImportCheckpoint(username, source);
+        if (checkpoint.manifestFile.exists()) {
+            if (!checkpoint.load()) {
+                checkpoint.complete();
+            }
+        }
+        return checkpoint;
+    }
+
+    private boolean load() {
+        Properties props = new Properties();
+        try (InputStreamReader reader = new InputStreamReader(
+                new FileInputStream(manifestFile), StandardCharsets.UTF_8)) {
+            props.load(reader);
+            if (!sourcePath.equals(props.getProperty("source"))
+                    || sourceLength != Long.parseLong(props.getProperty("sourceLength", "-1"))
+                    || sourceModified != Long.parseLong(props.getProperty("sourceModified", "-1"))) {
+                return false;
+            }
+            phase = Phase.valueOf(props.getProperty("phase", Phase.PARSING.name()));
+            byteOffset = Long.parseLong(props.getProperty("byteOffset", "0"));
+            lineNumber = Long.parseLong(props.getProperty("lineNumber", "0"));
+            lastId = Long.parseLong(props.getProperty("lastId", "0"));
+            storeLength = Long.parseLong(props.getProperty("storeLength", "-1"));
+            rowsImported = Integer.parseInt(props.getProperty("rowsImported", "0"));
+            resumed = true;
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Ignoring unreadable import manifest: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void save() throws IOException {
+        Properties props = new Properties();
+        props.setProperty("source", sourcePath);
+        props.setProperty("sourceLength", String.valueOf(sourceLength));
+        props.setProperty("sourceModified", String.valueOf(sourceModified));
+        props.setProperty("phase", phase.name());
+        props.setProperty("byteOffset", String.valueOf(byteOffset));
+        props.setProperty("lineNumber", String.valueOf(lineNumber));
+        props.setProperty("lastId", String.valueOf(lastId));
+        props.setProperty("storeLength", String.valueOf(storeLength));
+        props.setProperty("rowsImported", String.valueOf(rowsImported));
+
+        // 先写临时文件再替换，避免中断时留下半个清单
+        File tmp = new File(manifestFile.getPath() + ".tmp");
+        try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            props.store(writer, "import checkpoint");
+        }
+        Files.move(tmp.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 记录一次已提交到用户交易文件的解析进度
+     *
+     * @param lineNumber 字节偏移量之前最后一行的行号，恢复后错误报告中的行号从这里继续
+     */
+    public void recordParsed(long byteOffset, long lineNumber, long lastId, long storeLength, int rowsImported)
+            throws IOException {
+        this.byteOffset = byteOffset;
+        this.lineNumber = lineNumber;
+        this.lastId = lastId;
+        this.storeLength = storeLength;
+        this.rowsImported = rowsImported;
+        save();
+    }
+
+    public void startCategorizing() throws IOException {
+        phase = Phase.CATEGORIZING;
+        save();
+    }
+
+    /**
+     * 导入完成，删除清单
+     */
+    public void complete() {
+        manifestFile.delete();
+        resumed = false;
+    }
+
+    public boolean isResumed() {
+        return resumed;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public long getByteOffset() {
+        return byteOffset;
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    public long getLastId() {
+        return lastId;
+    }
+
+    public long getStoreLength() {
+        return storeLength;
+    }
+
+    public int getRowsImported() {
+        return rowsImported;
+    }
+}
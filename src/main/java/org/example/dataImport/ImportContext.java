@@ -0,0 +1,61 @@
+package org.example.dataImport;
+
+import org.example.list.IdAllocator;
+import org.example.list.Transaction;
+import org.example.utils.ParseErrorReport;
+
+/**
+ * 导入上下文，供格式解析器获取当前用户、分配交易ID和报告无法解析的行
+ * 每个文件使用一个上下文，只由解析该文件的线程访问
+ */
+public class ImportContext {
+
+    private final String username;
+    private final IdAllocator ids;
+    private final String sourceName;
+    private final ParseErrorReport errors;
+    private long line;
+    private String[] row;
+
+    /**
+     * @param ids        用户的ID分配器
+     * @param sourceName 账单文件名，用于错误报告
+     * @param errors     解析错误报告，可以为null
+     */
+    public ImportContext(String username, IdAllocator ids, String sourceName, ParseErrorReport errors) {
+        this.username = username;
+        this.ids = ids;
+        this.sourceName = sourceName;
+        this.errors = errors;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public int nextId() {
+        return ids.next();
+    }
+
+    /**
+     * 开始解析一行，之后的reject记录到这一行
+     */
+    void startRow(long line, String[] row) {
+        this.line = line;
+        this.row = row;
+    }
+
+    /**
+     * 报告当前行无法解析
+     *
+     * @param column 出错的列，从1开始；整行有问题时为0
+     * @param reason 原因
+     * @return 总是null，解析器可以直接返回
+     */
+    public Transaction reject(int column, String reason) {
+        if (errors != null) {
+            errors.record(sourceName, line, column, reason, row != null ? row : new String[0]);
+        }
+        return null;
+    }
+}
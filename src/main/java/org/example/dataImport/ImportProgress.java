@@ -0,0 +1,103 @@
+package org.example.dataImport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 批量导入的进度，记录每个文件和总体的已导入行数及速度
+ * 解析线程只做计数，最多每200毫秒通知一次监听器
+ */
+public class ImportProgress {
+
+    private static final long REPORT_INTERVAL_NANOS = 200_000_000L;
+
+    public interface Listener {
+        void onProgress(ImportProgress progress);
+    }
+
+    private final int fileCount;
+    private final Listener listener;
+    private final long startNanos = System.nanoTime();
+    private final List<FileProgress> files = new ArrayList<>();
+    private final AtomicLong totalRows = new AtomicLong();
+    private final AtomicInteger filesDone = new AtomicInteger();
+    private final AtomicLong lastReport = new AtomicLong(startNanos);
+
+    public ImportProgress(int fileCount, Listener listener) {
+        this.fileCount = fileCount;
+        this.listener = listener;
+    }
+
+    public synchronized FileProgress fileStarted(String name) {
+        FileProgress file = new FileProgress(name);
+        files.add(file);
+        report(true);
+        return file;
+    }
+
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    public int getFilesDone() {
+        return filesDone.get();
+    }
+
+    /**
+     * 进度说明：第一行为总体进度，之后每个文件一行
+     */
+    public synchronized String describe() {
+        long now = System.nanoTime();
+        StringBuilder sb = new StringBuilder(String.format("%d/%d files, %d rows, %.0f rows/s",
+                filesDone.get(), fileCount, totalRows.get(), rate(totalRows.get(), startNanos, now)));
+        for (FileProgress file : files) {
+            long end = file.endNanos > 0 ? file.endNanos : now;
+            sb.append(String.format("%n%s: %d rows, %.0f rows/s%s", file.name, file.rows,
+                    rate(file.rows, file.startNanos, end), file.endNanos > 0 ? " (done)" : ""));
+        }
+        return sb.toString();
+    }
+
+    private static double rate(long rows, long fromNanos, long toNanos) {
+        long elapsed = Math.max(1, toNanos - fromNanos);
+        return rows * 1_000_000_000.0 / elapsed;
+    }
+
+    private void report(boolean force) {
+        long now = System.nanoTime();
+        long last = lastReport.get();
+        if ((force || now - last >= REPORT_INTERVAL_NANOS) && lastReport.compareAndSet(last, now)) {
+            listener.onProgress(this);
+        }
+    }
+
+    /**
+     * 单个文件的进度，只由解析该文件的线程更新
+     */
+    public class FileProgress {
+        private final String name;
+        private final long startNanos = System.nanoTime();
+        private volatile long rows;
+        private volatile long endNanos;
+
+        private FileProgress(String name) {
+            this.name = name;
+        }
+
+        public void rowImported() {
+            rows++;
+            totalRows.incrementAndGet();
+            if ((rows & 0xff) == 0) {
+                report(false);
+            }
+        }
+
+        public void finished() {
+            endNanos = System.nanoTime();
+            filesDone.incrementAndGet();
+            report(true);
+        }
+    }
+}
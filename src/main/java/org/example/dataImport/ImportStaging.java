@@ -0,0 +1,311 @@
+package org.example.dataImport;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.example.list.Transaction;
+
+/**
+ * 导入暂存区
+ * 前spillThreshold条记录保存在内存中，超出的部分顺序写入临时二进制文件，
+ * 预览时按页读取，保存时按顺序流式输出，内存占用与文件大小无关
+ */
+public class ImportStaging implements Closeable {
+
+    // 每隔多少条溢出记录保存一次文件偏移量，用于分页时快速定位
+    private static final int INDEX_INTERVAL = 256;
+
+    private final int spillThreshold;
+    private final List<Transaction> memoryRows = new ArrayList<>();
+
+    private File runFile;
+    private DataOutputStream runOut;
+    private long runBytes;
+    private int spilledCount;
+    private final List<Long> runIndex = new ArrayList<>();
+
+    // 溢出记录在预览中被删除或修改后的状态
+    private final Set<Integer> removedIds = new HashSet<>();
+    private final Map<Integer, Transaction> editedRows = new HashMap<>();
+
+    // 已写入用户文件的记录数（按位置计），这些记录只用于显示，不会被再次保存
+    private int committedRows;
+
+    private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream(256);
+    private final DataOutputStream recordOut = new DataOutputStream(recordBuffer);
+
+    public ImportStaging(int spillThreshold) {
+        this.spillThreshold = Math.max(0, spillThreshold);
+    }
+
+    /**
+     * 添加一条记录，超过阈值后写入临时文件
+     */
+    public synchronized void add(Transaction transaction) throws IOException {
+        if (runFile == null && memoryRows.size() < spillThreshold) {
+            memoryRows.add(transaction);
+            return;
+        }
+
+        if (runFile == null) {
+            runFile = File.createTempFile("import-staging-", ".run");
+            runFile.deleteOnExit();
+            runOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(runFile), 64 * 1024));
+        }
+
+        if (spilledCount % INDEX_INTERVAL == 0) {
+            runIndex.add(runBytes);
+        }
+
+        recordBuffer.reset();
+        writeRecord(recordOut, transaction);
+        recordBuffer.writeTo(runOut);
+        runBytes += recordBuffer.size();
+        spilledCount++;
+    }
+
+    /**
+     * @return 暂存的记录总数（按位置计，包含已保存的记录）
+     */
+    public synchronized int size() {
+        return memoryRows.size() + spilledCount;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size() == 0;
+    }
+
+    synchronized boolean isSpilled() {
+        return spilledCount > 0;
+    }
+
+    /**
+     * @return 尚未写入用户文件的记录是否存在
+     */
+    public synchronized boolean hasPending() {
+        return size() > committedRows;
+    }
+
+    /**
+     * 读取一页记录，已删除的记录会被跳过
+     *
+     * @param from  起始位置
+     * @param count 最多读取的条数
+     */
+    public synchronized List<Transaction> page(int from, int count) throws IOException {
+        List<Transaction> page = new ArrayList<>(Math.max(0, count));
+        int end = Math.min(size(), from + count);
+        int position = Math.max(0, from);
+
+        for (; position < end && position < memoryRows.size(); position++) {
+            page.add(memoryRows.get(position));
+        }
+        if (position >= end) {
+            return page;
+        }
+
+        int spilledFrom = position - memoryRows.size();
+        int spilledEnd = end - memoryRows.size();
+        readSpilled(spilledFrom, spilledEnd, page);
+        return page;
+    }
+
+    /**
+     * 按顺序将尚未保存的记录交给写出方
+     */
+    public synchronized void forEachPending(RowWriter writer) throws IOException {
+        int position = committedRows;
+        for (; position < memoryRows.size(); position++) {
+            writer.write(memoryRows.get(position));
+        }
+        if (spilledCount == 0) {
+            return;
+        }
+
+        runOut.flush();
+        int skip = position - memoryRows.size();
+        try (DataInputStream in = openRun(0)) {
+            for (int i = 0; i < spilledCount; i++) {
+                Transaction transaction = readRecord(in);
+                if (i < skip || removedIds.contains(transaction.getId())) {
+                    continue;
+                }
+                writer.write(editedRows.getOrDefault(transaction.getId(), transaction));
+            }
+        }
+    }
+
+    /**
+     * 将当前所有记录标记为已保存
+     */
+    public synchronized void markCommitted() {
+        committedRows = size();
+    }
+
+    public synchronized void remove(Collection<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            int index = memoryRows.indexOf(transaction);
+            if (index < 0) {
+                removedIds.add(transaction.getId());
+                editedRows.remove(transaction.getId());
+                continue;
+            }
+            memoryRows.remove(index);
+            if (index < committedRows) {
+                committedRows--;
+            }
+        }
+    }
+
+    /**
+     * 丢弃位置newSize之后的记录，用于撤销被取消的导入
+     */
+    public synchronized void truncate(int newSize) throws IOException {
+        if (newSize >= size()) {
+            return;
+        }
+        newSize = Math.max(0, newSize);
+        committedRows = Math.min(committedRows, newSize);
+        if (newSize <= memoryRows.size()) {
+            memoryRows.subList(newSize, memoryRows.size()).clear();
+            deleteRunFile();
+            return;
+        }
+
+        // 从最近的索引点开始，按编码长度累加得到保留部分的结束偏移量
+        int keep = newSize - memoryRows.size();
+        runOut.flush();
+        int block = keep / INDEX_INTERVAL;
+        long offset = runIndex.get(block);
+        try (DataInputStream in = openRun(offset)) {
+            for (int i = block * INDEX_INTERVAL; i < keep; i++) {
+                recordBuffer.reset();
+                writeRecord(recordOut, readRecord(in));
+                offset += recordBuffer.size();
+            }
+        }
+
+        runOut.close();
+        try (FileOutputStream out = new FileOutputStream(runFile, true)) {
+            out.getChannel().truncate(offset);
+        }
+        runOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(runFile, true), 64 * 1024));
+        runBytes = offset;
+        spilledCount = keep;
+        runIndex.subList((keep + INDEX_INTERVAL - 1) / INDEX_INTERVAL, runIndex.size()).clear();
+    }
+
+    public synchronized void clear() {
+        memoryRows.clear();
+        removedIds.clear();
+        editedRows.clear();
+        committedRows = 0;
+        deleteRunFile();
+    }
+
+    @Override
+    public synchronized void close() {
+        clear();
+    }
+
+    private void readSpilled(int from, int end, List<Transaction> page) throws IOException {
+        runOut.flush();
+        int block = from / INDEX_INTERVAL;
+        try (DataInputStream in = openRun(runIndex.get(block))) {
+            for (int i = block * INDEX_INTERVAL; i < end; i++) {
+                Transaction transaction = readRecord(in);
+                if (i < from || removedIds.contains(transaction.getId())) {
+                    continue;
+                }
+                Transaction edited = editedRows.get(transaction.getId());
+                page.add(edited != null ? edited : trackEdits(transaction));
+            }
+        }
+    }
+
+    // 溢出记录每次翻页都会重新读取，预览中的修改需要单独保存下来
+    private Transaction trackEdits(Transaction transaction) {
+        transaction.amountProperty().addListener(o -> markEdited(transaction));
+        transaction.categoryProperty().addListener(o -> markEdited(transaction));
+        transaction.descriptionProperty().addListener(o -> markEdited(transaction));
+        return transaction;
+    }
+
+    private synchronized void markEdited(Transaction transaction) {
+        editedRows.put(transaction.getId(), transaction);
+    }
+
+    private DataInputStream openRun(long offset) throws IOException {
+        FileInputStream fis = new FileInputStream(runFile);
+        fis.getChannel().position(offset);
+        return new DataInputStream(new BufferedInputStream(fis, 64 * 1024));
+    }
+
+    private void deleteRunFile() {
+        if (runFile == null) {
+            return;
+        }
+        try {
+            runOut.close();
+        } catch (IOException e) {
+            System.err.println("Error closing staging file: " + e.getMessage());
+        }
+        if (!runFile.delete()) {
+            runFile.deleteOnExit();
+        }
+        runFile = null;
+        runOut = null;
+        runBytes = 0;
+        spilledCount = 0;
+        runIndex.clear();
+    }
+
+    private static void writeRecord(DataOutputStream out, Transaction transaction) throws IOException {
+        out.writeInt(transaction.getId());
+        out.writeUTF(nullToEmpty(transaction.getUsername()));
+        out.writeUTF(nullToEmpty(transaction.getSource()));
+        out.writeLong(transaction.getDate().toEpochDay());
+        out.writeDouble(transaction.getAmount());
+        out.writeUTF(nullToEmpty(transaction.getCategory()));
+        out.writeUTF(nullToEmpty(transaction.getDescription()));
+    }
+
+    private static Transaction readRecord(DataInputStream in) throws IOException {
+        int id = in.readInt();
+        String username = in.readUTF();
+        String source = in.readUTF();
+        LocalDate date = LocalDate.ofEpochDay(in.readLong());
+        double amount = in.readDouble();
+        String category = in.readUTF();
+        String description = in.readUTF();
+        return new Transaction(id, username, source, date, amount, category, description);
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    /**
+     * 记录写出接口，允许抛出IOException
+     */
+    @FunctionalInterface
+    public interface RowWriter {
+        void write(Transaction transaction) throws IOException;
+    }
+}
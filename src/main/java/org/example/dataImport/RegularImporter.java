@@ -0,0 +1,76 @@
+package org.example.dataImport;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.example.list.Transaction;
+import org.example.utils.FieldParsers;
+
+/**
+ * 普通交易CSV（包括模板文件），作为其他格式都不匹配时的默认格式
+ * 第一行为表头，按列名定位字段；列名无法识别时使用 User,Source,Date,Amount,Category,Description 的顺序
+ */
+public class RegularImporter implements StatementImporter {
+
+    private static final List<String> FIELDS = Arrays.asList(
+            "user", "source", "date", "amount", "category", "description");
+
+    @Override
+    public String getName() {
+        return "regular";
+    }
+
+    @Override
+    public int sniff(List<String[]> headRows) {
+        return 1;
+    }
+
+    @Override
+    public boolean isHeader(String[] row) {
+        return true;
+    }
+
+    @Override
+    public RowParser newParser(String[] header, ImportContext context) {
+        // 字段顺序：user, source, date, amount, category, description
+        int[] columns = { 0, 1, 2, 3, 4, 5 };
+        int[] named = { -1, -1, -1, -1, -1, -1 };
+        int found = 0;
+        for (int i = 0; i < header.length; i++) {
+            int field = FIELDS.indexOf(header[i].trim().toLowerCase(Locale.ROOT).replace("username", "user"));
+            if (field >= 0 && named[field] < 0) {
+                named[field] = i;
+                found++;
+            }
+        }
+        if (found == named.length) {
+            columns = named;
+        }
+
+        int[] cols = columns;
+        int minColumns = Math.max(6, Arrays.stream(cols).max().getAsInt() + 1);
+        return rowData -> {
+            if (rowData.length < minColumns) {
+                return StatementImporters.isEmptyRow(rowData) ? null : context.reject(0, "too few columns");
+            }
+            LocalDate date = FieldParsers.parseDate(rowData[cols[2]]);
+            if (date == null) {
+                return context.reject(cols[2] + 1, "invalid date");
+            }
+            double amount = FieldParsers.parseAmount(rowData[cols[3]]);
+            if (Double.isNaN(amount)) {
+                return context.reject(cols[3] + 1, "invalid amount");
+            }
+            return new Transaction(
+                    context.nextId(),
+                    rowData[cols[0]].trim(),
+                    rowData[cols[1]].trim(),
+                    date,
+                    amount,
+                    rowData[cols[4]].trim(),
+                    rowData[cols[5]].trim());
+        };
+    }
+}
@@ -0,0 +1,25 @@
+package org.example.dataImport;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 账单行来源，按顺序逐行提供已拆分为单元格的记录
+ */
+public interface RowSource extends Closeable {
+
+    /**
+     * @return 下一行的单元格；到达末尾时返回null
+     */
+    String[] next() throws IOException;
+
+    /**
+     * 当前使用的文本编码
+     */
+    String getEncoding();
+
+    /**
+     * 已返回的最后一行之后的位置，可用于断点恢复
+     */
+    long position();
+}
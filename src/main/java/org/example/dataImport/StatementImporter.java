@@ -0,0 +1,59 @@
+package org.example.dataImport;
+
+import java.util.List;
+
+import org.example.list.Transaction;
+
+/**
+ * 账单导入格式
+ * 每种格式提供一个廉价的嗅探方法和一个流式的行解析器。
+ * 实现类通过ServiceLoader注册（META-INF/services/org.example.dataImport.StatementImporter），
+ * 新的银行格式只需增加一个实现类即可被自动识别。
+ */
+public interface StatementImporter {
+
+    /**
+     * 格式名称，例如 "alipay"
+     */
+    String getName();
+
+    /**
+     * 根据文件开头的若干行判断是否为该格式
+     *
+     * @param headRows 文件开头已解析的行
+     * @return 匹配分数，分数最高的格式被选中；0表示不支持
+     */
+    int sniff(List<String[]> headRows);
+
+    /**
+     * 判断是否为表头行，表头行之前的内容（账单说明等）全部跳过
+     */
+    boolean isHeader(String[] row);
+
+    /**
+     * 为一个文件创建行解析器
+     *
+     * @param header  表头行
+     * @param context 导入上下文，提供用户名和ID分配
+     */
+    RowParser newParser(String[] header, ImportContext context);
+
+    /**
+     * 是否在解析时保存断点并在导入后进行AI分类
+     */
+    default boolean isCheckpointed() {
+        return false;
+    }
+
+    /**
+     * 流式行解析器
+     */
+    interface RowParser {
+        /**
+         * 解析一行，不抛出异常：格式错误的行通过 {@link ImportContext#reject} 报告并返回null
+         *
+         * @return 解析出的交易；不是交易记录的行（空行、汇总行等）返回null
+         */
+        Transaction parse(String[] row);
+    }
+}
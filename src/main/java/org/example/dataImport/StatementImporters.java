@@ -0,0 +1,93 @@
+package org.example.dataImport;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * 账单格式注册表，通过ServiceLoader发现所有StatementImporter
+ */
+public class StatementImporters {
+
+    private static final List<StatementImporter> IMPORTERS = load();
+
+    private StatementImporters() {
+    }
+
+    private static List<StatementImporter> load() {
+        List<StatementImporter> importers = new ArrayList<>();
+        for (StatementImporter importer : ServiceLoader.load(StatementImporter.class)) {
+            importers.add(importer);
+        }
+        if (importers.isEmpty()) {
+            // 服务配置缺失时（例如未复制资源文件）仍支持内置格式
+            importers.add(new AlipayImporter());
+            importers.add(new WechatImporter());
+            importers.add(new RegularImporter());
+        }
+        return Collections.unmodifiableList(importers);
+    }
+
+    public static List<StatementImporter> getImporters() {
+        return IMPORTERS;
+    }
+
+    /**
+     * 选出与文件开头最匹配的格式
+     *
+     * @param headRows 文件开头已解析的行
+     * @return 分数最高的格式，分数相同时按注册顺序
+     */
+    public static StatementImporter select(List<String[]> headRows) {
+        StatementImporter best = null;
+        int bestScore = 0;
+        for (StatementImporter importer : IMPORTERS) {
+            int score = importer.sniff(headRows);
+            if (score > bestScore) {
+                best = importer;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 判断开头的若干行中是否有包含指定文字的单元格
+     */
+    static boolean containsText(List<String[]> rows, String text) {
+        for (String[] row : rows) {
+            for (String cell : row) {
+                if (cell.contains(text)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    static boolean isEmptyRow(String[] rowData) {
+        for (String cell : rowData) {
+            if (cell != null && !cell.trim().isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static String processDate(String rawDate) {
+        if (rawDate != null && rawDate.length() >= 10) {
+            return rawDate.substring(0, 10);
+        }
+        return rawDate;
+    }
+
+    static String processAmount(String rawAmount) {
+        if (rawAmount == null || rawAmount.isEmpty()) {
+            return "0.00";
+        }
+        String processed = rawAmount.replace("¥", "").trim();
+        processed = processed.replace("￥", "").replace("$", "").replace("€", "").replace("£", "");
+        return processed;
+    }
+}
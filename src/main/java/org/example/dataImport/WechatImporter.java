@@ -0,0 +1,60 @@
+package org.example.dataImport;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.example.list.Transaction;
+import org.example.utils.FieldParsers;
+
+/**
+ * 微信支付账单明细CSV
+ * 表头之前是账单说明，表头以“交易时间”开头
+ */
+public class WechatImporter implements StatementImporter {
+
+    @Override
+    public String getName() {
+        return "wechat";
+    }
+
+    @Override
+    public int sniff(List<String[]> headRows) {
+        return StatementImporters.containsText(headRows, "微信支付账单明细") ? 90 : 0;
+    }
+
+    @Override
+    public boolean isHeader(String[] row) {
+        return row.length >= 6 && row[0].startsWith("交易时间");
+    }
+
+    @Override
+    public RowParser newParser(String[] header, ImportContext context) {
+        return rowData -> {
+            if (rowData.length < 6 || StatementImporters.isEmptyRow(rowData)) {
+                return null;
+            }
+            LocalDate date = FieldParsers.parseDate(StatementImporters.processDate(rowData[0]));
+            if (date == null) {
+                return context.reject(1, "invalid date");
+            }
+
+            // 处理金额，并根据交易类型调整符号
+            double amount = FieldParsers.parseAmount(StatementImporters.processAmount(rowData[5]));
+            if (Double.isNaN(amount)) {
+                return context.reject(6, "invalid amount");
+            }
+            if ("支出".equals(rowData[4])) {
+                amount = -amount;
+            }
+
+            return new Transaction(
+                    context.nextId(),
+                    context.getUsername(),
+                    "wechat",
+                    date,
+                    amount,
+                    "Uncategorized",
+                    rowData[1] + rowData[2]);
+        };
+    }
+}
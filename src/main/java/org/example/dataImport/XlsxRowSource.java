@@ -0,0 +1,372 @@
+package org.example.dataImport;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * XLSX工作簿的行来源
+ * 直接用StAX流式读取压缩包中第一个工作表的XML，不构建DOM，内存占用与行数无关
+ * （共享字符串表除外）。位置为已返回的行数，恢复时跳过相应行数。
+ */
+public class XlsxRowSource implements RowSource {
+
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final LocalDate EXCEL_EPOCH = LocalDate.of(1899, 12, 30);
+
+    private final ZipFile zip;
+    private final InputStream sheetStream;
+    private final XMLStreamReader sheet;
+    private final List<String> sharedStrings;
+    private final BitSet dateStyles;
+    private int rowsReturned;
+
+    private XlsxRowSource(ZipFile zip, String sheetPath) throws IOException, XMLStreamException {
+        this.zip = zip;
+        this.sharedStrings = readSharedStrings(zip);
+        this.dateStyles = readDateStyles(zip);
+        ZipEntry entry = zip.getEntry(sheetPath);
+        if (entry == null) {
+            throw new IOException("Worksheet not found: " + sheetPath);
+        }
+        this.sheetStream = zip.getInputStream(entry);
+        this.sheet = newFactory().createXMLStreamReader(sheetStream);
+    }
+
+    public static boolean isWorkbook(File file) {
+        return file.getName().toLowerCase(Locale.ROOT).endsWith(".xlsx");
+    }
+
+    /**
+     * 打开工作簿的第一个工作表
+     *
+     * @param skipRows 跳过的行数，用于从断点继续
+     */
+    public static XlsxRowSource open(File file, long skipRows) throws IOException {
+        return open(new ZipFile(file), skipRows);
+    }
+
+    /**
+     * 从字节流打开工作簿，如压缩包中的条目
+     * 读取工作表需要随机访问，先复制到临时文件，关闭时删除
+     */
+    public static XlsxRowSource open(InputStream in) throws IOException {
+        File tmp = File.createTempFile("statement", ".xlsx");
+        try (in) {
+            Files.copy(in, tmp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return open(new ZipFile(tmp, ZipFile.OPEN_READ | ZipFile.OPEN_DELETE), 0);
+        } catch (IOException | RuntimeException e) {
+            tmp.delete();
+            throw e;
+        }
+    }
+
+    private static XlsxRowSource open(ZipFile zip, long skipRows) throws IOException {
+        try {
+            XlsxRowSource source = new XlsxRowSource(zip, firstSheetPath(zip));
+            while (source.rowsReturned < skipRows && source.next() != null) {
+                // 跳过已导入的行
+            }
+            return source;
+        } catch (XMLStreamException e) {
+            zip.close();
+            throw new IOException("Invalid workbook: " + e.getMessage(), e);
+        } catch (IOException | RuntimeException e) {
+            zip.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public String[] next() throws IOException {
+        try {
+            while (sheet.hasNext()) {
+                if (sheet.next() == XMLStreamConstants.START_ELEMENT && "row".equals(sheet.getLocalName())) {
+                    rowsReturned++;
+                    return readRow();
+                }
+            }
+            return null;
+        } catch (XMLStreamException | RuntimeException e) {
+            throw new IOException("Invalid worksheet at row " + rowsReturned + ": " + e.getMessage(), e);
+        }
+    }
+
+    private String[] readRow() throws XMLStreamException {
+        List<String> cells = new ArrayList<>();
+        String ref = null, type = null, style = null, value = null;
+        StringBuilder inline = new StringBuilder();
+
+        while (sheet.hasNext()) {
+            int event = sheet.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                switch (sheet.getLocalName()) {
+                    case "c":
+                        ref = sheet.getAttributeValue(null, "r");
+                        type = sheet.getAttributeValue(null, "t");
+                        style = sheet.getAttributeValue(null, "s");
+                        value = null;
+                        inline.setLength(0);
+                        break;
+                    case "v":
+                        value = sheet.getElementText();
+                        break;
+                    case "t":
+                        inline.append(sheet.getElementText());
+                        break;
+                    default:
+                        break;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                if ("c".equals(sheet.getLocalName())) {
+                    int column = ref != null ? columnIndex(ref) : -1;
+                    if (column < 0) {
+                        column = cells.size();
+                    }
+                    while (cells.size() < column) {
+                        cells.add("");
+                    }
+                    String cell = cellValue(type, style, value, inline);
+                    if (column < cells.size()) {
+                        cells.set(column, cell);
+                    } else {
+                        cells.add(cell);
+                    }
+                } else if ("row".equals(sheet.getLocalName())) {
+                    break;
+                }
+            }
+        }
+        return cells.toArray(new String[0]);
+    }
+
+    private String cellValue(String type, String style, String value, StringBuilder inline) {
+        if ("inlineStr".equals(type)) {
+            return inline.toString().trim();
+        }
+        if (value == null) {
+            return "";
+        }
+        // 引用或样式无效的单元格保留原始值，由账单格式的解析器把所在行记录为无法解析的行
+        if ("s".equals(type)) {
+            int index = parseIndex(value);
+            return index >= 0 && index < sharedStrings.size() ? sharedStrings.get(index).trim() : value.trim();
+        }
+        if (type == null || "n".equals(type)) {
+            int styleIndex = style != null ? parseIndex(style) : -1;
+            if (styleIndex >= 0 && dateStyles.get(styleIndex)) {
+                try {
+                    return formatDate(Double.parseDouble(value));
+                } catch (NumberFormatException e) {
+                    return value.trim();
+                }
+            }
+        }
+        return value.trim();
+    }
+
+    // 非负整数，格式错误时为-1
+    private static int parseIndex(String text) {
+        try {
+            return Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Excel日期是从1899-12-30起的天数，小数部分为一天中的时间
+    private static String formatDate(double serial) {
+        long days = (long) Math.floor(serial);
+        long seconds = Math.round((serial - days) * 86400);
+        LocalDate date = EXCEL_EPOCH.plusDays(days);
+        if (seconds == 0) {
+            return date.toString();
+        }
+        return date.atStartOfDay().plusSeconds(seconds).format(DATE_TIME);
+    }
+
+    // 单元格引用（如 "AB12"）中的列号，从0开始
+    private static int columnIndex(String ref) {
+        int column = 0;
+        for (int i = 0; i < ref.length(); i++) {
+            char c = ref.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                break;
+            }
+            column = column * 26 + (c - 'A' + 1);
+        }
+        return column - 1;
+    }
+
+    @Override
+    public String getEncoding() {
+        return "UTF-8";
+    }
+
+    @Override
+    public long position() {
+        return rowsReturned;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            sheet.close();
+        } catch (XMLStreamException e) {
+            // 关闭压缩包时会一并释放
+        }
+        sheetStream.close();
+        zip.close();
+    }
+
+    private static XMLInputFactory newFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * 通过 workbook.xml 和它的关系文件找到第一个工作表，找不到时使用 sheet1.xml
+     */
+    private static String firstSheetPath(ZipFile zip) throws IOException, XMLStreamException {
+        String relationId = null;
+        ZipEntry workbook = zip.getEntry("xl/workbook.xml");
+        if (workbook != null) {
+            try (InputStream in = zip.getInputStream(workbook)) {
+                XMLStreamReader xml = newFactory().createXMLStreamReader(in);
+                while (xml.hasNext() && relationId == null) {
+                    if (xml.next() == XMLStreamConstants.START_ELEMENT && "sheet".equals(xml.getLocalName())) {
+                        for (int i = 0; i < xml.getAttributeCount(); i++) {
+                            if ("id".equals(xml.getAttributeLocalName(i))) {
+                                relationId = xml.getAttributeValue(i);
+                            }
+                        }
+                    }
+                }
+                xml.close();
+            }
+        }
+
+        ZipEntry rels = zip.getEntry("xl/_rels/workbook.xml.rels");
+        if (relationId != null && rels != null) {
+            try (InputStream in = zip.getInputStream(rels)) {
+                XMLStreamReader xml = newFactory().createXMLStreamReader(in);
+                while (xml.hasNext()) {
+                    if (xml.next() == XMLStreamConstants.START_ELEMENT
+                            && "Relationship".equals(xml.getLocalName())
+                            && relationId.equals(xml.getAttributeValue(null, "Id"))) {
+                        String target = xml.getAttributeValue(null, "Target");
+                        xml.close();
+                        return target.startsWith("/") ? target.substring(1) : "xl/" + target;
+                    }
+                }
+                xml.close();
+            }
+        }
+        return "xl/worksheets/sheet1.xml";
+    }
+
+    private static List<String> readSharedStrings(ZipFile zip) throws IOException, XMLStreamException {
+        List<String> strings = new ArrayList<>();
+        ZipEntry entry = zip.getEntry("xl/sharedStrings.xml");
+        if (entry == null) {
+            return strings;
+        }
+        try (InputStream in = zip.getInputStream(entry)) {
+            XMLStreamReader xml = newFactory().createXMLStreamReader(in);
+            StringBuilder text = new StringBuilder();
+            boolean phonetic = false;
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = xml.getLocalName();
+                    if ("si".equals(name)) {
+                        text.setLength(0);
+                    } else if ("rPh".equals(name)) {
+                        phonetic = true;
+                    } else if ("t".equals(name) && !phonetic) {
+                        text.append(xml.getElementText());
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    String name = xml.getLocalName();
+                    if ("si".equals(name)) {
+                        strings.add(text.toString());
+                    } else if ("rPh".equals(name)) {
+                        phonetic = false;
+                    }
+                }
+            }
+            xml.close();
+        }
+        return strings;
+    }
+
+    /**
+     * 找出使用日期格式的单元格样式
+     */
+    private static BitSet readDateStyles(ZipFile zip) throws IOException, XMLStreamException {
+        BitSet dateStyles = new BitSet();
+        ZipEntry entry = zip.getEntry("xl/styles.xml");
+        if (entry == null) {
+            return dateStyles;
+        }
+        Set<Integer> customDateFormats = new HashSet<>();
+        try (InputStream in = zip.getInputStream(entry)) {
+            XMLStreamReader xml = newFactory().createXMLStreamReader(in);
+            boolean inCellXfs = false;
+            int styleIndex = 0;
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = xml.getLocalName();
+                    if ("numFmt".equals(name)) {
+                        String code = xml.getAttributeValue(null, "formatCode");
+                        if (code != null && isDateFormat(code)) {
+                            customDateFormats.add(Integer.parseInt(xml.getAttributeValue(null, "numFmtId")));
+                        }
+                    } else if ("cellXfs".equals(name)) {
+                        inCellXfs = true;
+                    } else if ("xf".equals(name) && inCellXfs) {
+                        String id = xml.getAttributeValue(null, "numFmtId");
+                        int numFmtId = id == null ? 0 : Integer.parseInt(id);
+                        if ((numFmtId >= 14 && numFmtId <= 22) || (numFmtId >= 45 && numFmtId <= 47)
+                                || customDateFormats.contains(numFmtId)) {
+                            dateStyles.set(styleIndex);
+                        }
+                        styleIndex++;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && "cellXfs".equals(xml.getLocalName())) {
+                    inCellXfs = false;
+                }
+            }
+            xml.close();
+        }
+        return dateStyles;
+    }
+
+    // 去掉引号中的文字和 [Red] 之类的修饰后，包含年月日时的格式视为日期
+    private static boolean isDateFormat(String formatCode) {
+        String code = formatCode.replaceAll("\"[^\"]*\"", "").replaceAll("\\[[^\\]]*\\]", "")
+                .toLowerCase(Locale.ROOT);
+        return code.contains("y") || code.contains("d") || code.contains("h")
+                || (code.contains("m") && !code.contains("0"));
+    }
+}
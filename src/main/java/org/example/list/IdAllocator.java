@@ -0,0 +1,159 @@
+package org.example.list;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 交易ID分配器
+ * 每个用户一个实例，ID文件 "<用户名>_nextId.txt" 中只保存已租用的ID上限（不含）：
+ * 每次租用一块ID时写一次文件，块内的ID无锁分配。程序重启后从上限继续，
+ * 上次未用完的ID被跳过，因此分配出去的ID不会重复。
+ */
+public class IdAllocator {
+
+    // 每次租用的ID数
+    public static final int DEFAULT_BLOCK_SIZE = 64;
+
+    // 按ID文件的绝对路径共享实例，同一用户的导入和编辑使用同一个分配器
+    private static final Map<String, IdAllocator> ALLOCATORS = new ConcurrentHashMap<>();
+
+    private final File file;
+    private final int blockSize;
+    private final AtomicLong next;
+    private volatile long limit;
+
+    private IdAllocator(File file, int blockSize, long start) {
+        this.file = file;
+        this.blockSize = Math.max(1, blockSize);
+        this.next = new AtomicLong(start);
+        this.limit = start;
+    }
+
+    /**
+     * 当前目录下用户的ID分配器，从ID文件中的上限和用户交易文件中最大的ID之后两者中较大的开始
+     */
+    public static IdAllocator forUser(String username) {
+        return open(new File(username + "_nextId.txt"), new File(username + "_transactions.csv"));
+    }
+
+    public static IdAllocator open(File file) {
+        return open(file, null);
+    }
+
+    /**
+     * @param store 交易文件，ID文件落后于它（例如被还原成旧版本）时从其中最大的ID之后开始；可以为null
+     */
+    static IdAllocator open(File file, File store) {
+        return ALLOCATORS.computeIfAbsent(file.getAbsolutePath(), key -> {
+            long start = readLimit(file);
+            if (store != null) {
+                start = Math.max(start, maxIdIn(store) + 1);
+            }
+            return new IdAllocator(file, DEFAULT_BLOCK_SIZE, start);
+        });
+    }
+
+    // 不共享的实例，用于测试重启后的行为
+    static IdAllocator load(File file, int blockSize) {
+        return new IdAllocator(file, blockSize, readLimit(file));
+    }
+
+    /**
+     * 分配一个新的ID；当前块用完时租用下一块
+     */
+    public int next() {
+        long id = next.getAndIncrement();
+        if (id >= limit) {
+            lease(id + blockSize);
+        }
+        return (int) id;
+    }
+
+    /**
+     * @return 最近分配的ID，还没有分配过时为上限之前的ID
+     */
+    public long lastIssued() {
+        return next.get() - 1;
+    }
+
+    /**
+     * 文件中已经存在的ID，之后只分配比它大的ID
+     */
+    public void advancePast(long usedId) {
+        next.accumulateAndGet(usedId + 1, Math::max);
+        if (usedId >= limit) {
+            lease(usedId + 1);
+        }
+    }
+
+    // 把上限提高到至少newLimit并写入文件
+    private synchronized void lease(long newLimit) {
+        if (newLimit <= limit) {
+            return;
+        }
+        try {
+            File tmp = new File(file.getPath() + ".tmp");
+            Files.write(tmp.toPath(), String.valueOf(newLimit).getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // 写不出时本次运行中的ID仍然唯一，只是重启后可能从旧的上限继续
+            System.err.println("Cannot save nextId: " + e.getMessage());
+        }
+        limit = newLimit;
+    }
+
+    private static long maxIdIn(File store) {
+        long max = 0;
+        if (!store.exists()) {
+            return max;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(store), StandardCharsets.UTF_8))) {
+            TransactionSchema schema = TransactionSchema.fromHeader(reader.readLine());
+            String line;
+            while ((line = reader.readLine()) != null) {
+                max = Math.max(max, schema.id(schema.split(line)));
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot read transaction ids: " + e.getMessage());
+        }
+        return max;
+    }
+
+    /**
+     * @throws IllegalStateException ID文件无法读取或内容不是有效的上限；从1重新开始会分配出重复的ID
+     */
+    private static long readLimit(File file) {
+        if (!file.exists()) {
+            return 1;
+        }
+        String line;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            line = reader.readLine();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read " + file.getName() + ": " + e.getMessage(), e);
+        }
+        long limit;
+        try {
+            limit = Long.parseLong(line == null ? "" : line.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Invalid id limit in " + file.getName() + ": " + line);
+        }
+        // 交易ID为int，上限最多比最大的ID大1
+        if (limit < 1 || limit - 1 > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Id limit out of range in " + file.getName() + ": " + limit);
+        }
+        return limit;
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.list;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+
+/**
+ * 把一批分类结果写回交易文件
+ * 逐行复制文件，只替换指定ID且仍为 "Uncategorized" 的行的分类列，其余行原样保留；
+ * 用户在分类完成前手动修改过的分类不会被覆盖。写完临时文件后原子替换。
+ */
+public class TransactionCategoryWriter {
+
+    private TransactionCategoryWriter() {
+    }
+
+    /**
+     * @param store      交易文件
+     * @param categories 交易ID到分类的映射
+     * @return 实际更新的行数
+     */
+    public static int writeCategories(File store, Map<Integer, String> categories) throws IOException {
+        if (categories.isEmpty() || !store.exists()) {
+            return 0;
+        }
+        synchronized (TransactionFileMigrator.lockFor(store)) {
+            TransactionFileMigrator.ensureCurrent(store);
+
+            File tmp = new File(store.getPath() + ".tmp");
+            int updated = 0;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(store), StandardCharsets.UTF_8));
+                    BufferedWriter writer = new BufferedWriter(
+                            new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+                String header = reader.readLine();
+                TransactionSchema schema = TransactionSchema.fromHeader(header);
+                int column = schema.column(TransactionSchema.Field.CATEGORY);
+                if (header != null) {
+                    writer.write(header);
+                    writer.newLine();
+                }
+
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = schema.split(line);
+                    String category = categories.get(schema.id(parts));
+                    if (category != null && column >= 0 && column < parts.length
+                            && "Uncategorized".equals(parts[column].trim())) {
+                        parts[column] = category;
+                        line = String.join(",", parts);
+                        updated++;
+                    }
+                    writer.write(line);
+                    writer.newLine();
+                }
+            } catch (IOException e) {
+                tmp.delete();
+                throw e;
+            }
+            Files.move(tmp.toPath(), store.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            return updated;
+        }
+    }
+}
@@ -1,13 +1,22 @@
 package org.example.list;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -82,44 +91,103 @@ public class TransactionController {
      */
     private void saveTransactionsToCSV(ObservableList<Transaction> transactions, String filePath) throws IOException {
         File file = new File(filePath);
+        // 与后台的格式升级和分类写入互斥
+        synchronized (TransactionFileMigrator.lockFor(file)) {
+            // 覆盖写入前等待后台的格式升级完成，避免升级结果覆盖本次保存
+            TransactionFileMigrator.ensureCurrent(file);
 
-        try (BufferedWriter writer = new BufferedWriter(
-                new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            // 打开视图之后后台分类写回的分类和新导入的行以文件为准，不被视图中的旧数据覆盖
+            Set<Integer> shown = new HashSet<>();
+            for (Transaction transaction : transactions) {
+                shown.add(transaction.getId());
+            }
+            Map<Integer, String> savedCategories = new HashMap<>();
+            List<String> addedLines = new ArrayList<>();
+            readCurrent(file, shown, savedCategories, addedLines);
+            for (Transaction transaction : transactions) {
+                String saved = savedCategories.get(transaction.getId());
+                if (saved != null && "Uncategorized".equals(transaction.getCategory())) {
+                    transaction.setCategory(saved);
+                }
+            }
 
-            // 写入标题行
-            writer.write("id,username,source,date,amount,category,description");
-            writer.newLine();
+            try (BufferedWriter writer = new BufferedWriter(
+                    new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
 
-            // 写入每条交易记录
-            DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+                // 写入标题行
+                writer.write(TransactionSchema.STORE_HEADER);
+                writer.newLine();
 
-            for (Transaction transaction : transactions) {
-                StringBuilder line = new StringBuilder();
+                // 写入每条交易记录
+                DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
-                // 添加ID
-                appendField(line, String.valueOf(transaction.getId()-1), true);
+                for (Transaction transaction : transactions) {
+                    StringBuilder line = new StringBuilder();
 
-                // 添加用户
-                appendField(line, view.getCurrentUsername(), true);
+                    // 添加ID
+                    appendField(line, String.valueOf(transaction.getId()), true);
+
+                    // 添加用户
+                    appendField(line, view.getCurrentUsername(), true);
                 
-                // 添加来源
-                appendField(line, transaction.getSource(), true);
+                    // 添加来源
+                    appendField(line, transaction.getSource(), true);
 
-                // 添加日期
-                appendField(line, transaction.getDate().format(dateFormatter), true);
+                    // 添加日期
+                    appendField(line, transaction.getDate().format(dateFormatter), true);
 
-                // 添加金额
-                appendField(line, String.format("%.2f", transaction.getAmount()), true);
+                    // 添加金额
+                    appendField(line, String.format("%.2f", transaction.getAmount()), true);
 
-                // 添加分类
-                appendField(line, transaction.getCategory(), true);
+                    // 添加分类
+                    appendField(line, transaction.getCategory(), true);
 
-                // 添加描述（最后一个字段不带逗号）
-                appendField(line, transaction.getDescription(), false);
+                    // 添加描述（最后一个字段不带逗号）
+                    appendField(line, transaction.getDescription(), false);
 
-                // 写入行
-                writer.write(line.toString());
-                writer.newLine();
+                    // 写入行
+                    writer.write(line.toString());
+                    writer.newLine();
+                }
+
+                for (String added : addedLines) {
+                    writer.write(added);
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    /**
+     * 读取文件中已分类的交易的分类，以及不在视图中的行
+     *
+     * @param shown           视图中的交易ID
+     * @param savedCategories 已分类的交易ID到分类的映射
+     * @param addedLines      文件中有而视图中没有的行，原样保留
+     */
+    private void readCurrent(File file, Set<Integer> shown, Map<Integer, String> savedCategories,
+            List<String> addedLines) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            TransactionSchema schema = TransactionSchema.fromHeader(reader.readLine());
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                String[] parts = schema.split(line);
+                int id = schema.id(parts);
+                if (!shown.contains(id)) {
+                    addedLines.add(line);
+                    continue;
+                }
+                String category = schema.get(parts, TransactionSchema.Field.CATEGORY);
+                if (!category.isEmpty() && !"Uncategorized".equals(category)) {
+                    savedCategories.put(id, category);
+                }
             }
         }
     }
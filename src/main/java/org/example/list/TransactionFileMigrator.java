@@ -0,0 +1,197 @@
+package org.example.list;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 交易文件格式升级
+ * 交易文件的格式由表头确定版本：
+ * <ul>
+ * <li>版本0："User,Source,Date,Amount,Category,Description"，没有ID列</li>
+ * <li>版本1："Id,User,..."、"ID,User,..." 等带ID列但列名或顺序不同的写法</li>
+ * <li>版本2（当前）：{@link TransactionSchema#STORE_HEADER}</li>
+ * </ul>
+ * 表头本身就是版本标记，不另写版本号：文件仍是普通CSV，其他读取方按列名解析，不需要跳过额外的标记。
+ * 以后改变格式时换一个新的表头，并在 {@link #versionOf} 中加一个版本。
+ * 旧版本的文件在首次打开时由后台线程逐行流式转换为当前格式，写入临时文件后原子替换；
+ * 之后所有读取方都走当前格式的快速路径。写文件前和交易视图读取前调用 {@link #ensureCurrent} 等待升级完成。
+ */
+public class TransactionFileMigrator {
+
+    public static final int CURRENT_VERSION = 2;
+
+    // 正在进行的后台升级，按文件的绝对路径索引
+    private static final Map<String, CompletableFuture<Boolean>> MIGRATIONS = new ConcurrentHashMap<>();
+
+    // 每个交易文件的写锁，按文件的绝对路径索引
+    private static final Map<String, Object> LOCKS = new ConcurrentHashMap<>();
+
+    private TransactionFileMigrator() {
+    }
+
+    /**
+     * 同一交易文件的写入方共用的锁：追加、覆盖保存、删除、更新分类和格式升级互斥
+     */
+    public static Object lockFor(File file) {
+        return LOCKS.computeIfAbsent(file.getAbsolutePath(), key -> new Object());
+    }
+
+    /**
+     * 根据表头判断文件格式的版本
+     */
+    public static int versionOf(String header) {
+        if (TransactionSchema.STORE_HEADER.equals(header)) {
+            return CURRENT_VERSION;
+        }
+        return TransactionSchema.fromHeader(header).has(TransactionSchema.Field.ID) ? 1 : 0;
+    }
+
+    /**
+     * @return 文件存在、不为空且不是当前格式
+     */
+    public static boolean needsMigration(File file) throws IOException {
+        if (!file.exists() || file.length() == 0) {
+            return false;
+        }
+        try (BufferedReader reader = newReader(file)) {
+            return versionOf(reader.readLine()) != CURRENT_VERSION;
+        }
+    }
+
+    /**
+     * 首次打开文件时调用，需要升级时在后台线程中进行
+     *
+     * @return 升级完成时完成，结果表示是否进行了升级
+     */
+    public static CompletableFuture<Boolean> migrateInBackground(File file) {
+        String key = file.getAbsolutePath();
+        CompletableFuture<Boolean> started = new CompletableFuture<>();
+        CompletableFuture<Boolean> running = MIGRATIONS.putIfAbsent(key, started);
+        if (running != null) {
+            return running;
+        }
+
+        Thread thread = new Thread(() -> {
+            try {
+                started.complete(migrate(file));
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Cannot migrate " + file.getName() + ": " + e.getMessage());
+                started.complete(false);
+            } finally {
+                MIGRATIONS.remove(key, started);
+            }
+        }, "transaction-migration");
+        thread.setDaemon(true);
+        thread.start();
+        return started;
+    }
+
+    /**
+     * 写文件之前调用：文件仍是旧格式时立即升级
+     * 升级和写入使用同一把锁，进行中的后台升级完成之前这里会等待；调用方已持有锁时也不会死锁
+     */
+    public static void ensureCurrent(File file) throws IOException {
+        migrate(file);
+    }
+
+    /**
+     * 把旧格式的文件转换为当前格式
+     * 没有ID的行按顺序分配ID（从文件中最大的ID之后开始），没有用户列时使用文件名中的用户名
+     *
+     * @return 是否进行了升级
+     */
+    public static boolean migrate(File file) throws IOException {
+        synchronized (lockFor(file)) {
+            return needsMigration(file) && upgrade(file);
+        }
+    }
+
+    private static boolean upgrade(File file) throws IOException {
+
+        TransactionSchema schema;
+        int nextId = 1;
+        try (BufferedReader reader = newReader(file)) {
+            String header = reader.readLine();
+            schema = TransactionSchema.fromHeader(header);
+            System.out.println("升级交易文件格式: " + file.getName() + " (版本" + versionOf(header) + ")");
+            if (schema.has(TransactionSchema.Field.ID)) {
+                // 第一遍只找出最大的ID，缺少ID的行排在它之后
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    nextId = Math.max(nextId, schema.id(schema.split(line)) + 1);
+                }
+            }
+        }
+
+        String defaultUser = usernameOf(file);
+        File tmp = new File(file.getPath() + ".migrating");
+        int rows = 0;
+        int firstAssigned = nextId;
+        try (BufferedReader reader = newReader(file);
+                BufferedWriter writer = new BufferedWriter(
+                        new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+            reader.readLine();
+            writer.write(TransactionSchema.STORE_HEADER);
+            writer.newLine();
+
+            String line;
+            StringBuilder sb = new StringBuilder();
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                String[] parts = schema.split(line);
+                int id = schema.id(parts);
+                String user = schema.get(parts, TransactionSchema.Field.USER);
+
+                sb.setLength(0);
+                sb.append(id >= 0 ? id : nextId++).append(',')
+                        .append(user.isEmpty() && defaultUser != null ? defaultUser : user).append(',')
+                        .append(schema.get(parts, TransactionSchema.Field.SOURCE)).append(',')
+                        .append(schema.get(parts, TransactionSchema.Field.DATE)).append(',')
+                        .append(schema.get(parts, TransactionSchema.Field.AMOUNT)).append(',')
+                        .append(schema.get(parts, TransactionSchema.Field.CATEGORY)).append(',')
+                        .append(schema.get(parts, TransactionSchema.Field.DESCRIPTION));
+                writer.write(sb.toString());
+                writer.newLine();
+                rows++;
+            }
+        } catch (IOException | RuntimeException e) {
+            tmp.delete();
+            throw e;
+        }
+
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.out.println("交易文件升级完成: " + rows + " 条记录");
+        if (nextId > firstAssigned && defaultUser != null) {
+            // 分配了新ID时保证用户之后分配的ID在它们之后
+            IdAllocator.open(new File(file.getAbsoluteFile().getParentFile(), defaultUser + "_nextId.txt"))
+                    .advancePast(nextId - 1);
+        }
+        return true;
+    }
+
+    // "<用户名>_transactions.csv" 中的用户名，文件名不是这个格式时返回null
+    private static String usernameOf(File file) {
+        String name = file.getName();
+        String suffix = "_transactions.csv";
+        return name.endsWith(suffix) && name.length() > suffix.length()
+                ? name.substring(0, name.length() - suffix.length()) : null;
+    }
+
+    private static BufferedReader newReader(File file) throws IOException {
+        return new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+    }
+}
@@ -2,104 +2,100 @@ package org.example.list;
 
 // TransactionLoader.java
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.example.utils.ParseErrorReport;
+
 public class TransactionLoader {
     private String username;
+
+    /**
+     * 加载交易文件，无法解析的行写入同目录下的 "<文件名>_rejects.csv"
+     */
     public List<Transaction> loadTransactions(String filePath, String currentUsername) throws IOException {
+        File file = new File(filePath);
+        try (ParseErrorReport errors = new ParseErrorReport(ParseErrorReport.DEFAULT_MAX_ERRORS,
+                ParseErrorReport.rejectFileFor(file))) {
+            List<Transaction> transactions = loadTransactions(filePath, currentUsername, errors);
+            if (errors.hasErrors()) {
+                System.out.println("警告: " + errors.summary());
+            }
+            return transactions;
+        }
+    }
+
+    /**
+     * 加载交易文件，格式错误的行不抛出异常，记录到errors后跳过
+     * 旧格式的文件先升级，显示的ID与之后保存的ID一致
+     */
+    public List<Transaction> loadTransactions(String filePath, String currentUsername, ParseErrorReport errors)
+            throws IOException {
         List<Transaction> transactions = new ArrayList<>();
         File file = new File(filePath);
         this.username = currentUsername;
+        TransactionFileMigrator.ensureCurrent(file);
         try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)))  {
             String headerLine = br.readLine(); // Skip header
             System.out.println("Header: " + headerLine);
 
-            // 解析CSV标题获取索引
-            String[] headers = headerLine.split(",");
-            int idIdx = 0;
-            int userIdx = -1, sourceIdx = -1, dateIdx = -1, amountIdx = -1, categoryIdx = -1, descriptionIdx = -1;
-
-            // 查找各列的索引位置
-            for (int i = 0; i < headers.length; i++) {
-                String header = headers[i].trim().toLowerCase();
-                if (header.equals("user"))
-                    userIdx = i;
-                else if (header.equals("source"))
-                    sourceIdx = i;
-                else if (header.equals("date"))
-                    dateIdx = i;
-                else if (header.equals("amount"))
-                    amountIdx = i;
-                else if (header.equals("category"))
-                    categoryIdx = i;
-                else if (header.equals("description"))
-                    descriptionIdx = i;
-            }
-            if (dateIdx == -1 || amountIdx == -1) {
-                throw new IOException("CSV文件必须包含Date和Amount列");
-            }
-
-            System.out.println("Columns: User=" + userIdx + ", Source=" + sourceIdx +
-                    ", Date=" + dateIdx + ", Amount=" + amountIdx +
-                    ", Category=" + categoryIdx + ", Description=" + descriptionIdx);
+            // 根据标题推断列布局，逐行解析时直接按列读取
+            TransactionSchema schema = TransactionSchema.fromHeader(headerLine);
+            int dateColumn = schema.column(TransactionSchema.Field.DATE) + 1;
+            int amountColumn = schema.column(TransactionSchema.Field.AMOUNT) + 1;
 
             int lineCount = 1;
             String line;
             while ((line = br.readLine()) != null) {
                 lineCount++;
-                String[] values = line.split(",");
+                String[] values = schema.split(line);
 
                 // 确保有足够的列
-                if (values.length <= Math.max(dateIdx, Math.max(amountIdx, Math.max(categoryIdx, descriptionIdx)))) {
-                    System.out.println("警告: 第" + lineCount + "行数据列数不足，已跳过");
+                if (!schema.accepts(values)) {
+                    errors.record(file.getName(), lineCount, 0, "too few columns", line);
                     continue;
                 }
-                try {
-                    // 解析金额，正确处理负号
-                    double amount;
-                    String amountStr = values[amountIdx].trim();
-
-                    // 清理金额字符串：移除货币符号、空格等
-                    amountStr = amountStr.replace("¥", "")
-                            .replace("￥", "")
-                            .replace("$", "")
-                            .replace("€", "")
-                            .replace("£", "")
-                            .replace(" ", "")
-                            .trim();
 
-                    // 尝试解析金额
-                    try {
-                        amount = Double.parseDouble(amountStr);
-                    } catch (NumberFormatException e) {
-                        System.out.println("警告: 无法解析金额 '" + amountStr + "' 在第" + lineCount + "行，已跳过");
-                        continue;
-                    }
+                // 解析金额，正确处理负号，忽略货币符号和空格
+                double amount = schema.amount(values);
+                if (Double.isNaN(amount)) {
+                    errors.record(file.getName(), lineCount, amountColumn, "invalid amount", line);
+                    continue;
+                }
+                LocalDate date = schema.date(values);
+                if (date == null) {
+                    errors.record(file.getName(), lineCount, dateColumn, "invalid date", line);
+                    continue;
+                }
 
-                    // 创建Transaction对象并添加到列表中
-                    Transaction transaction = new Transaction(
-                            lineCount, // 使用行号作为ID
-                            userIdx >= 0 && userIdx < values.length ? values[userIdx].trim() : "",
-                            sourceIdx >= 0 && sourceIdx < values.length ? values[sourceIdx].trim() : "",
-                            LocalDate.parse(values[dateIdx].trim()),
-                            amount,
-                            categoryIdx >= 0 && categoryIdx < values.length ? values[categoryIdx].trim() : "",
-                            descriptionIdx >= 0 && descriptionIdx < values.length ? values[descriptionIdx].trim() : "");
-                    transactions.add(transaction);
-                } catch (Exception e) {
-                    System.out.println("警告: 处理第" + lineCount + "行数据出错: " + e.getMessage());
-                    e.printStackTrace();
+                int id = schema.id(values);
+                if (id < 0) {
+                    errors.record(file.getName(), lineCount, schema.column(TransactionSchema.Field.ID) + 1,
+                            "invalid id", line);
+                    continue;
                 }
+
+                // 创建Transaction对象并添加到列表中
+                Transaction transaction = new Transaction(
+                        id,
+                        schema.get(values, TransactionSchema.Field.USER),
+                        schema.get(values, TransactionSchema.Field.SOURCE),
+                        date,
+                        amount,
+                        schema.get(values, TransactionSchema.Field.CATEGORY),
+                        schema.get(values, TransactionSchema.Field.DESCRIPTION));
+                transactions.add(transaction);
             }
         }
         return transactions;
@@ -111,38 +107,43 @@ public class TransactionLoader {
      * @param transaction 要删除的交易对象
      */
     public void deleteTransaction(Transaction transaction) throws IOException {
-        
-        Path path = Paths.get(this.username + "_transactions.csv");
+        String owner = this.username != null ? this.username : transaction.getUsername();
+        File file = new File(owner + "_transactions.csv");
+        if (!file.exists()) {
+            return;
+        }
 
-        // 读取所有行
-        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        // 与其他写入方互斥，避免替换文件时丢失它们的修改
+        synchronized (TransactionFileMigrator.lockFor(file)) {
+            // 旧格式的文件先升级，之后按当前格式的ID列匹配
+            TransactionFileMigrator.ensureCurrent(file);
 
-        // 筛选出不需要删除的行
-        List<String> remainingLines = new ArrayList<>();
-        for (String line : lines) {
-            // 跳过标题行
-            if (line.startsWith("User,Source,Date,Amount,Category,Description") ||
-                    line.startsWith("Id,User,Source,Date,Amount,Category,Description")) {
-                remainingLines.add(line);
-                continue;
-            }
+            // 流式复制不需要删除的行，写完后替换原文件
+            File tmp = new File(file.getPath() + ".tmp");
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+                    BufferedWriter writer = new BufferedWriter(
+                            new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+                String header = reader.readLine();
+                TransactionSchema schema = TransactionSchema.fromHeader(header);
+                if (header != null) {
+                    writer.write(header);
+                    writer.newLine();
+                }
 
-            // 解析ID并比较
-            String[] parts = line.split(",");
-            if (parts.length > 0) {
-                try {
-                    Integer recordId = Integer.parseInt(parts[0].trim());
-                    if (!recordId.equals(transaction.getId())) {
-                        remainingLines.add(line);
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    // 无法解析ID的行保留
+                    if (schema.id(schema.split(line)) != transaction.getId()) {
+                        writer.write(line);
+                        writer.newLine();
                     }
-                } catch (NumberFormatException e) {
-                    // 如果无法解析ID，保留该行
-                    remainingLines.add(line);
                 }
+            } catch (IOException e) {
+                tmp.delete();
+                throw e;
             }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
         }
-
-        // 写回文件
-        Files.write(path, remainingLines, StandardCharsets.UTF_8);
     }
 }
\ No newline at end of file
@@ -0,0 +1,197 @@
+package org.example.list;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.example.utils.FieldParsers;
+
+/**
+ * 交易CSV的列布局
+ * 读取文件时根据表头推断一次各字段所在的列（兼容 "id,username,..." 和 "User,Source,..." 等写法），
+ * 编译成字段访问器，之后逐行解析时不再比较列名。
+ * 表头无法识别时按列数使用默认顺序：6列为 User,Source,Date,Amount,Category,Description，其余为交易文件的格式。
+ */
+public class TransactionSchema {
+
+    /**
+     * 交易文件的表头
+     */
+    public static final String STORE_HEADER = "id,username,source,date,amount,category,description";
+
+    public enum Field {
+        ID, USER, SOURCE, DATE, AMOUNT, CATEGORY, DESCRIPTION
+    }
+
+    /**
+     * 交易文件的布局
+     */
+    public static final TransactionSchema STORE = new TransactionSchema(new int[] { 0, 1, 2, 3, 4, 5, 6 });
+
+    // 没有ID列的旧格式（导入模板）
+    private static final TransactionSchema LEGACY = new TransactionSchema(new int[] { -1, 0, 1, 2, 3, 4, 5 });
+
+    private final int[] columns;
+    private final Column[] accessors;
+    private final int minColumns;
+
+    private TransactionSchema(int[] columns) {
+        this.columns = columns;
+        this.accessors = new Column[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            accessors[i] = compile(columns[i]);
+        }
+        this.minColumns = Math.max(columns[Field.USER.ordinal()],
+                Math.max(columns[Field.DATE.ordinal()], columns[Field.AMOUNT.ordinal()])) + 1;
+    }
+
+    /**
+     * 根据表头行推断布局，表头为空时使用交易文件的布局
+     */
+    public static TransactionSchema fromHeader(String headerLine) {
+        // 当前格式的文件不需要逐列比较
+        if (headerLine == null || headerLine.isEmpty() || STORE_HEADER.equals(headerLine)) {
+            return STORE;
+        }
+        return fromHeader(headerLine.split(",", -1));
+    }
+
+    public static TransactionSchema fromHeader(String[] header) {
+        int[] columns = new int[Field.values().length];
+        Arrays.fill(columns, -1);
+        for (int i = 0; i < header.length; i++) {
+            Field field = fieldOf(header[i]);
+            if (field != null && columns[field.ordinal()] < 0) {
+                columns[field.ordinal()] = i;
+            }
+        }
+        if (columns[Field.DATE.ordinal()] < 0 || columns[Field.AMOUNT.ordinal()] < 0) {
+            return header.length == 6 ? LEGACY : STORE;
+        }
+        return new TransactionSchema(columns);
+    }
+
+    private static Field fieldOf(String name) {
+        switch (name.trim().replace("\uFEFF", "").toLowerCase(Locale.ROOT)) {
+            case "id":
+                return Field.ID;
+            case "user":
+            case "username":
+                return Field.USER;
+            case "source":
+                return Field.SOURCE;
+            case "date":
+                return Field.DATE;
+            case "amount":
+                return Field.AMOUNT;
+            case "category":
+                return Field.CATEGORY;
+            case "description":
+                return Field.DESCRIPTION;
+            default:
+                return null;
+        }
+    }
+
+    private static Column compile(int index) {
+        if (index < 0) {
+            return row -> "";
+        }
+        return row -> index < row.length ? row[index].trim() : "";
+    }
+
+    /**
+     * 拆分一行，保留末尾的空列
+     */
+    public String[] split(String line) {
+        return line.split(",", -1);
+    }
+
+    /**
+     * @return 行中是否包含用户、日期和金额所在的列
+     */
+    public boolean accepts(String[] row) {
+        return row.length >= minColumns;
+    }
+
+    /**
+     * @return 字段所在的列，从0开始；文件中没有该字段时为-1
+     */
+    public int column(Field field) {
+        return columns[field.ordinal()];
+    }
+
+    public boolean has(Field field) {
+        return columns[field.ordinal()] >= 0;
+    }
+
+    /**
+     * @return 去掉首尾空白的字段值，没有该字段时为空字符串
+     */
+    public String get(String[] row, Field field) {
+        return accessors[field.ordinal()].get(row);
+    }
+
+    /**
+     * 文件没有用户列时所有行都属于当前用户
+     */
+    public boolean belongsTo(String[] row, String username) {
+        return !has(Field.USER) || get(row, Field.USER).equals(username);
+    }
+
+    /**
+     * @return 日期，格式错误时为null
+     */
+    public LocalDate date(String[] row) {
+        return FieldParsers.parseDate(get(row, Field.DATE));
+    }
+
+    /**
+     * @return 金额，格式错误时为NaN
+     */
+    public double amount(String[] row) {
+        return FieldParsers.parseAmount(get(row, Field.AMOUNT));
+    }
+
+    /**
+     * @return 交易ID，没有ID列或格式错误时为-1
+     */
+    public int id(String[] row) {
+        String id = get(row, Field.ID);
+        if (id.isEmpty() || id.length() > 9) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * 把一行转换为交易，没有ID列时ID为-1
+     *
+     * @return 交易，行中缺少必要的列或日期、金额格式错误时返回null
+     */
+    public Transaction toTransaction(String[] row) {
+        if (!accepts(row)) {
+            return null;
+        }
+        LocalDate date = date(row);
+        double amount = amount(row);
+        if (date == null || Double.isNaN(amount)) {
+            return null;
+        }
+        return new Transaction(id(row), get(row, Field.USER), get(row, Field.SOURCE), date, amount,
+                get(row, Field.CATEGORY), get(row, Field.DESCRIPTION));
+    }
+
+    @FunctionalInterface
+    private interface Column {
+        String get(String[] row);
+    }
+}
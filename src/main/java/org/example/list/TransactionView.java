@@ -9,6 +9,7 @@ import org.example.analysis.AnalysisView;
 import org.example.dataImport.DataImportView;
 import org.example.utils.CategoryRulesManager;
 import org.example.utils.DeepSeekCategoryService;
+import org.example.utils.LocalCategoryModel;
 
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -119,6 +120,11 @@ public class TransactionView {
                     transaction.setCategory(oldCategory);
                     // 刷新表格显示
                     table.refresh();
+                } else {
+                    // 用户的修改作为本地分类模型的训练样本
+                    LocalCategoryModel model = LocalCategoryModel.forUser(getCurrentUsername());
+                    model.relabel(description, String.valueOf(transaction.getAmount()), oldCategory, newCategory);
+                    model.save();
                 }
             }
         });
@@ -0,0 +1,70 @@
+package org.example.utils;
+
+import java.io.InterruptedIOException;
+
+/**
+ * AIMD自适应并发限制
+ * 请求成功时并发上限每轮加1（每次成功加 1/上限），遇到限流、服务端错误或超时时上限减半，
+ * API变慢时自动减少同时进行的请求，恢复后再逐渐增加。
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private double limit;
+    private int inFlight;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, initialLimit));
+    }
+
+    /**
+     * 等待直到进行中的请求数低于当前上限
+     *
+     * @throws InterruptedIOException 等待时线程被中断
+     */
+    public synchronized void acquire() throws InterruptedIOException {
+        while (inFlight >= (int) limit) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a request slot");
+            }
+        }
+        inFlight++;
+    }
+
+    /**
+     * 请求结束，按结果调整上限
+     *
+     * @param overloaded 是否遇到限流、服务端错误或超时
+     */
+    public synchronized void release(boolean overloaded) {
+        inFlight--;
+        if (overloaded) {
+            limit = Math.max(minLimit, limit / 2);
+        } else {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+        notifyAll();
+    }
+
+    /**
+     * 请求被取消，不调整上限
+     */
+    public synchronized void cancel() {
+        inFlight--;
+        notifyAll();
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+}
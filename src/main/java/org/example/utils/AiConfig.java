@@ -0,0 +1,114 @@
+package org.example.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * AI服务的端点、模型和API密钥
+ * 每一项按以下顺序查找，先找到的生效：
+ * <ol>
+ * <li>系统属性：ai.endpoint、ai.model、ai.apiKey</li>
+ * <li>环境变量：AI_ENDPOINT、AI_MODEL、AI_API_KEY（密钥也可以用DEEPSEEK_API_KEY）</li>
+ * <li>配置文件：系统属性ai.config指定的文件，默认为当前目录下的ai.properties，键为endpoint、model、apiKey</li>
+ * <li>默认值：DeepSeek的公共端点和deepseek-chat模型；密钥没有默认值</li>
+ * </ol>
+ * 没有配置密钥时不调用AI服务，分类和分析都使用本地的规则和模型。
+ * 例如使用本地的 {@link StubChatServer} 时：-Dai.endpoint=http://127.0.0.1:8089/v1/chat/completions -Dai.apiKey=stub
+ */
+public class AiConfig {
+
+    public static final String DEFAULT_ENDPOINT = "https://api.deepseek.com/v1/chat/completions";
+    public static final String DEFAULT_MODEL = "deepseek-chat";
+
+    private static final String CONFIG_FILE = "ai.properties";
+
+    private static AiConfig current;
+
+    private final String endpoint;
+    private final String model;
+    private final String apiKey;
+
+    public AiConfig(String endpoint, String model, String apiKey) {
+        this.endpoint = endpoint;
+        this.model = model;
+        this.apiKey = apiKey;
+    }
+
+    AiConfig(Properties file, Map<String, String> env, Properties system) {
+        this(resolve(system.getProperty("ai.endpoint"), env.get("AI_ENDPOINT"), file.getProperty("endpoint"),
+                DEFAULT_ENDPOINT),
+                resolve(system.getProperty("ai.model"), env.get("AI_MODEL"), file.getProperty("model"),
+                        DEFAULT_MODEL),
+                resolve(system.getProperty("ai.apiKey"),
+                        resolve(env.get("AI_API_KEY"), env.get("DEEPSEEK_API_KEY"), null, null),
+                        file.getProperty("apiKey"), null));
+    }
+
+    /**
+     * 当前的配置，第一次使用时读取
+     */
+    public static synchronized AiConfig get() {
+        if (current == null) {
+            current = new AiConfig(loadFile(), System.getenv(), System.getProperties());
+        }
+        return current;
+    }
+
+    /**
+     * 重新读取配置，例如修改了系统属性或配置文件之后
+     */
+    public static synchronized AiConfig reload() {
+        current = null;
+        return get();
+    }
+
+    private static String resolve(String... candidates) {
+        for (String candidate : candidates) {
+            if (candidate != null && !candidate.trim().isEmpty()) {
+                return candidate.trim();
+            }
+        }
+        return null;
+    }
+
+    private static Properties loadFile() {
+        Properties props = new Properties();
+        File file = new File(System.getProperty("ai.config", CONFIG_FILE));
+        if (!file.exists()) {
+            return props;
+        }
+        try (InputStreamReader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            props.load(reader);
+        } catch (IOException e) {
+            System.err.println("Cannot read AI config " + file.getName() + ": " + e.getMessage());
+        }
+        return props;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    /**
+     * @return API密钥，没有配置时为null
+     */
+    public String getApiKey() {
+        return apiKey;
+    }
+
+    /**
+     * @return 是否配置了可用的API密钥
+     */
+    public boolean hasApiKey() {
+        return apiKey != null && !apiKey.isEmpty() && !"YOUR_DEEPSEEK_API_KEY".equals(apiKey);
+    }
+}
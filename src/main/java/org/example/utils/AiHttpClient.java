@@ -0,0 +1,188 @@
+package org.example.utils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 所有AI服务共用的HTTP客户端
+ * 基于java.net.http.HttpClient：优先使用HTTP/2，同一主机的请求复用连接（HTTP/2多路复用，
+ * HTTP/1.1保持连接），不再为每个请求重新建立TLS连接。
+ * 超时和线程数可以通过系统属性配置：
+ * ai.http.connectTimeoutSeconds（默认10）、ai.http.requestTimeoutSeconds（默认60）、ai.http.threads（默认8）
+ * <p>
+ * 所有请求经过同一个AIMD并发限制和熔断器：遇到429、5xx或超时时按带随机抖动的指数退避重试，
+ * 并减少并发；连续失败后熔断器断开，请求立即失败，调用方改用本地的备用逻辑，导入不会卡住。
+ */
+public class AiHttpClient {
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(
+            Integer.getInteger("ai.http.connectTimeoutSeconds", 10));
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(
+            Integer.getInteger("ai.http.requestTimeoutSeconds", 60));
+
+    // 请求大部分时间在等待网络，线程数按并发请求数而不是CPU核数确定
+    private static final int THREADS = Math.max(2, Integer.getInteger("ai.http.threads", 8));
+
+    // 429和5xx最多重试的次数
+    private static final int MAX_RETRIES = 3;
+
+    // 退避的初始等待和上限
+    private static final long BACKOFF_BASE_MILLIS = 500;
+    private static final long BACKOFF_MAX_MILLIS = 8000;
+
+    private static final AdaptiveConcurrencyLimiter LIMITER = new AdaptiveConcurrencyLimiter(4, 1, THREADS * 2);
+
+    // 连续5次失败后断开30秒
+    private static final CircuitBreaker BREAKER = new CircuitBreaker(5, 30_000);
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .executor(newExecutor("ai-http-", THREADS))
+            .build();
+
+    // 调用方发送阻塞请求的线程，数量与并发限制的上限相同；与客户端内部的线程分开，避免互相等待
+    private static final ExecutorService REQUEST_EXECUTOR = newExecutor("ai-request-", THREADS * 2);
+
+    private AiHttpClient() {
+    }
+
+    private static ExecutorService newExecutor(String name, int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, name + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static HttpClient client() {
+        return CLIENT;
+    }
+
+    /**
+     * 所有AI服务共用的请求线程池，在其中调用 {@link #postJson} 等阻塞方法；不要关闭
+     */
+    public static ExecutorService requestExecutor() {
+        return REQUEST_EXECUTOR;
+    }
+
+    /**
+     * @return API是否可用：熔断器断开期间为false，冷却结束后允许试探时为true
+     */
+    public static boolean isAvailable() {
+        return !BREAKER.isOpen();
+    }
+
+    /**
+     * 构建带超时和认证头的JSON POST请求
+     */
+    public static HttpRequest newJsonPost(String url, String apiKey, String body) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Authorization", "Bearer " + apiKey)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
+                .build();
+    }
+
+    /**
+     * 发送请求；429和5xx响应以及网络错误按退避重试，重试用完后返回最后的响应
+     *
+     * @return 最后一次请求的响应，可以是任意状态码
+     * @throws IOException 网络错误或超时且重试用完、熔断器断开或线程被中断
+     */
+    public static HttpResponse<String> send(HttpRequest request) throws IOException {
+        for (int attempt = 0;; attempt++) {
+            if (!BREAKER.allowRequest()) {
+                throw new IOException("AI service unavailable (circuit open): " + request.uri());
+            }
+            LIMITER.acquire();
+
+            HttpResponse<String> response = null;
+            IOException failure = null;
+            try {
+                response = CLIENT.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                failure = e;
+            } catch (InterruptedException e) {
+                LIMITER.cancel();
+                BREAKER.recordCancelled();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Request interrupted: " + request.uri());
+            }
+
+            boolean overloaded = failure != null || isRetryable(response.statusCode());
+            LIMITER.release(overloaded);
+            if (overloaded) {
+                BREAKER.recordFailure();
+            } else {
+                BREAKER.recordSuccess();
+                return response;
+            }
+
+            if (attempt >= MAX_RETRIES) {
+                if (failure != null) {
+                    throw failure;
+                }
+                return response;
+            }
+            sleep(backoffMillis(attempt, response));
+        }
+    }
+
+    private static boolean isRetryable(int status) {
+        return status == 429 || status / 100 == 5;
+    }
+
+    /**
+     * 带随机抖动的指数退避；服务端给出Retry-After时至少等待该时间
+     */
+    static long backoffMillis(int attempt, HttpResponse<String> response) {
+        long cap = Math.min(BACKOFF_MAX_MILLIS, BACKOFF_BASE_MILLIS << Math.min(attempt, 16));
+        long delay = ThreadLocalRandom.current().nextLong(cap / 2, cap + 1);
+        if (response != null) {
+            String retryAfter = response.headers().firstValue("Retry-After").orElse("");
+            if (retryAfter.matches("\\d{1,4}")) {
+                delay = Math.max(delay, Math.min(BACKOFF_MAX_MILLIS, Long.parseLong(retryAfter) * 1000));
+            }
+        }
+        return delay;
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted during retry backoff");
+        }
+    }
+
+    /**
+     * 发送JSON POST请求
+     *
+     * @return 响应体
+     * @throws IOException 请求失败或状态码不是2xx
+     */
+    public static String postJson(String url, String apiKey, String body) throws IOException {
+        HttpResponse<String> response = send(newJsonPost(url, apiKey, body));
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("HTTP " + response.statusCode() + " from " + url);
+        }
+        return response.body();
+    }
+}
@@ -2,19 +2,62 @@ package org.example.utils;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.UnaryOperator;
 
 /**
  * 分类规则管理器
  * 负责管理用户自定义的分类规则，并将其用于增强自动分类
+ * 规则按添加顺序保存，并编译成关键词自动机：匹配时只扫描一遍描述，
+ * 多条规则同时匹配时使用关键词最长的一条，长度相同时使用先添加的一条
+ * <p>
+ * 当前规则是一个不可变的快照，修改时复制后整体替换，分类线程读取时不需要加锁，
+ * 导入过程中修改规则也是安全的。连续的修改合并为一次写文件，在最后一次修改后延迟进行。
  */
 public class CategoryRulesManager {
     private static final String RULES_FILE = "category_rules.txt";
-    private static final Map<String, String> categoryRules = new HashMap<>();
+
+    // 最后一次修改后等待多久写文件
+    private static final long SAVE_DELAY_MILLIS = 500;
+
+    private static volatile RuleSet rules = RuleSet.EMPTY;
+
+    private static final AtomicBoolean savePending = new AtomicBoolean();
+
+    private static final ScheduledExecutorService saver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "category-rules-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     static {
         // 初始化时加载规则
         loadRules();
+        // 退出前写出尚未保存的修改
+        Runtime.getRuntime().addShutdownHook(new Thread(CategoryRulesManager::flush, "category-rules-flush"));
+    }
+
+    /**
+     * 规则的不可变快照：规则、编译好的自动机和给AI的提示文本
+     */
+    private static final class RuleSet {
+        static final RuleSet EMPTY = new RuleSet(new LinkedHashMap<>());
+
+        final Map<String, String> rules;
+        final KeywordMatcher matcher;
+        final String prompt;
+
+        RuleSet(LinkedHashMap<String, String> rules) {
+            this.rules = Collections.unmodifiableMap(rules);
+            this.matcher = new KeywordMatcher(rules);
+            this.prompt = buildPrompt(rules);
+        }
     }
 
     /**
@@ -26,6 +69,7 @@ public class CategoryRulesManager {
             return;
         }
 
+        LinkedHashMap<String, String> loaded = new LinkedHashMap<>();
         try (BufferedReader reader = new BufferedReader(
                 new InputStreamReader(new FileInputStream(rulesFile), StandardCharsets.UTF_8))) {
             String line;
@@ -34,65 +78,101 @@ public class CategoryRulesManager {
                 if (parts.length == 2) {
                     String keyword = parts[0].trim();
                     String category = parts[1].trim();
-                    categoryRules.put(keyword, category);
+                    loaded.put(keyword, category);
                 }
             }
-            System.out.println("Loaded " + categoryRules.size() + " category rules");
+            rules = new RuleSet(loaded);
+            System.out.println("Loaded " + loaded.size() + " category rules");
         } catch (IOException e) {
             System.err.println("Error loading category rules: " + e.getMessage());
         }
     }
 
     /**
-     * 保存所有分类规则
+     * 保存所有分类规则，写入临时文件后替换
      */
     private static void saveRules() {
-        try (BufferedWriter writer = new BufferedWriter(
-                new OutputStreamWriter(new FileOutputStream(RULES_FILE), StandardCharsets.UTF_8))) {
-            for (Map.Entry<String, String> entry : categoryRules.entrySet()) {
-                writer.write(entry.getKey() + "||" + entry.getValue());
-                writer.newLine();
+        Map<String, String> snapshot = rules.rules;
+        File rulesFile = new File(RULES_FILE);
+        File tmp = new File(RULES_FILE + ".tmp");
+        try {
+            try (BufferedWriter writer = new BufferedWriter(
+                    new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+                for (Map.Entry<String, String> entry : snapshot.entrySet()) {
+                    writer.write(entry.getKey() + "||" + entry.getValue());
+                    writer.newLine();
+                }
             }
-            System.out.println("Saved " + categoryRules.size() + " category rules");
+            Files.move(tmp.toPath(), rulesFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("Saved " + snapshot.size() + " category rules");
         } catch (IOException e) {
             System.err.println("Error saving category rules: " + e.getMessage());
         }
     }
 
+    // 安排一次延迟保存；已经安排过时由那一次写出最新的快照
+    private static void scheduleSave() {
+        if (savePending.compareAndSet(false, true)) {
+            saver.schedule(CategoryRulesManager::flush, SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 立即写出尚未保存的修改
+     */
+    public static void flush() {
+        if (savePending.compareAndSet(true, false)) {
+            synchronized (CategoryRulesManager.class) {
+                saveRules();
+            }
+        }
+    }
+
+    // 复制当前规则、修改后整体替换
+    private static synchronized void update(UnaryOperator<LinkedHashMap<String, String>> change) {
+        rules = new RuleSet(change.apply(new LinkedHashMap<>(rules.rules)));
+        scheduleSave();
+    }
+
     /**
      * 添加新的分类规则
-     * 
+     *
      * @param keyword  关键词（通常是描述的一部分）
      * @param category 分类
      */
     public static void addRule(String keyword, String category) {
         // 只保存关键词的小写版本，以便不区分大小写进行匹配
-        categoryRules.put(keyword.toLowerCase(), category);
-        saveRules();
+        update(current -> {
+            current.put(keyword.toLowerCase(), category);
+            return current;
+        });
     }
 
     /**
      * 删除分类规则
-     * 
+     *
      * @param keyword 要删除的规则的关键词
      */
     public static void removeRule(String keyword) {
-        categoryRules.remove(keyword.toLowerCase());
-        saveRules();
+        update(current -> {
+            current.remove(keyword.toLowerCase());
+            return current;
+        });
     }
 
     /**
      * 获取所有分类规则
-     * 
-     * @return 分类规则映射
+     *
+     * @return 分类规则映射，是调用时的快照，不会随之后的修改变化
      */
     public static Map<String, String> getAllRules() {
-        return Collections.unmodifiableMap(categoryRules);
+        return rules.rules;
     }
 
     /**
      * 尝试根据描述匹配分类规则
-     * 
+     *
      * @param description 交易描述
      * @return 如果找到匹配，返回分类；否则返回null
      */
@@ -101,24 +181,20 @@ public class CategoryRulesManager {
             return null;
         }
 
-        String lowerDesc = description.toLowerCase();
-
-        // 尝试查找包含关键词的规则
-        for (Map.Entry<String, String> entry : categoryRules.entrySet()) {
-            if (lowerDesc.contains(entry.getKey().toLowerCase())) {
-                return entry.getValue();
-            }
-        }
-
-        return null;
+        // 一次扫描找出描述中包含的优先级最高的关键词
+        return rules.matcher.match(description);
     }
 
     /**
      * 生成分类提示文本用于AI模型
-     * 
+     *
      * @return 用于AI提示的分类规则文本
      */
     public static String generateClassificationPrompt() {
+        return rules.prompt;
+    }
+
+    private static String buildPrompt(Map<String, String> categoryRules) {
         if (categoryRules.isEmpty()) {
             return "";
         }
@@ -136,4 +212,4 @@ public class CategoryRulesManager {
 
         return prompt.toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,90 @@
+package org.example.utils;
+
+import java.util.function.LongSupplier;
+
+/**
+ * 熔断器
+ * 连续失败达到阈值后断开，断开期间请求立即失败、由调用方使用本地的备用逻辑；
+ * 冷却时间过后放行一个试探请求，成功则恢复，失败则继续断开。
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier clock;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probing;
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this(failureThreshold, openMillis, System::nanoTime);
+    }
+
+    CircuitBreaker(int failureThreshold, long openMillis, LongSupplier clock) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = openMillis * 1_000_000L;
+        this.clock = clock;
+    }
+
+    /**
+     * @return 是否可以发送请求；冷却后只放行一个试探请求
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            probing = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probing) {
+                return false;
+            }
+            probing = true;
+            return true;
+        }
+        return state == State.CLOSED;
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        probing = false;
+        if (state != State.CLOSED) {
+            System.out.println("AI service recovered, circuit closed");
+        }
+        state = State.CLOSED;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        probing = false;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            if (state == State.CLOSED) {
+                System.err.println("AI service failing, circuit opened after " + consecutiveFailures + " failures");
+            }
+            state = State.OPEN;
+            openedAt = clock.getAsLong();
+        }
+    }
+
+    /**
+     * 请求被取消，不计入结果；试探请求被取消时允许下一个试探
+     */
+    public synchronized void recordCancelled() {
+        probing = false;
+    }
+
+    /**
+     * @return 是否处于断开状态且冷却时间未到
+     */
+    public synchronized boolean isOpen() {
+        return state == State.OPEN && clock.getAsLong() - openedAt < openNanos;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
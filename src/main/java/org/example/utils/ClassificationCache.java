@@ -0,0 +1,178 @@
+package org.example.utils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * AI分类结果的持久化缓存
+ * 键为规范化后的描述（数字统一替换为#，订单号、日期等不影响命中）加上金额的符号和数量级，
+ * 同一商户的交易在之后的导入中直接使用缓存的分类，不再调用远程服务。
+ * 按最近使用的顺序淘汰超过上限的条目，缓存文件每行为 "键\t分类"，按从旧到新的顺序保存。
+ */
+public class ClassificationCache {
+
+    // 默认最多保留的条目数
+    public static final int DEFAULT_MAX_ENTRIES = 5000;
+
+    private static final String CACHE_FILE = "classification_cache.txt";
+
+    private static ClassificationCache shared;
+
+    private final File file;
+    private final LinkedHashMap<String, String> entries;
+    private boolean dirty;
+
+    /**
+     * @param file       缓存文件，为null时只在内存中缓存
+     * @param maxEntries 最多保留的条目数
+     */
+    public ClassificationCache(File file, int maxEntries) {
+        this.file = file;
+        int cap = Math.max(1, maxEntries);
+        this.entries = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > cap;
+            }
+        };
+        load();
+    }
+
+    /**
+     * 所有分类服务共用的缓存，第一次使用时从当前目录下的缓存文件加载
+     */
+    public static synchronized ClassificationCache shared() {
+        if (shared == null) {
+            shared = new ClassificationCache(new File(CACHE_FILE), DEFAULT_MAX_ENTRIES);
+        }
+        return shared;
+    }
+
+    /**
+     * 缓存键：规范化描述，连续的数字替换为一个#，再加上金额的符号和数量级
+     */
+    public static String keyOf(String description, String amount) {
+        return normalizeMerchant(description) + '|' + amountBucket(amount);
+    }
+
+    /**
+     * 规范化描述并把连续的数字替换为一个#，同一商户的不同订单得到相同的结果
+     */
+    public static String normalizeMerchant(String description) {
+        String normalized = TextNormalizer.normalizeDescription(description);
+        StringBuilder sb = new StringBuilder(normalized.length() + 4);
+        boolean inNumber = false;
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (!inNumber) {
+                    sb.append('#');
+                    inNumber = true;
+                }
+                continue;
+            }
+            inNumber = false;
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    // 金额的符号和数量级，例如 "-2" 表示支出100到999.99
+    private static String amountBucket(String amount) {
+        double value = FieldParsers.parseAmount(amount);
+        if (Double.isNaN(value)) {
+            return "?";
+        }
+        if (value == 0) {
+            return "0";
+        }
+        int magnitude = (int) Math.floor(Math.log10(Math.max(1, Math.abs(value))));
+        return (value < 0 ? "-" : "+") + magnitude;
+    }
+
+    /**
+     * @return 缓存的分类，没有时为null
+     */
+    public synchronized String get(String description, String amount) {
+        return entries.get(keyOf(description, amount));
+    }
+
+    public synchronized void put(String description, String amount, String category) {
+        String previous = entries.put(keyOf(description, amount), category);
+        if (!category.equals(previous)) {
+            dirty = true;
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 有新条目时写回缓存文件
+     */
+    public void flush() {
+        List<Map.Entry<String, String>> snapshot;
+        synchronized (this) {
+            if (file == null || !dirty) {
+                return;
+            }
+            snapshot = new ArrayList<>(entries.entrySet().size());
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                snapshot.add(Map.entry(entry.getKey(), entry.getValue()));
+            }
+            dirty = false;
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            try (BufferedWriter writer = new BufferedWriter(
+                    new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+                for (Map.Entry<String, String> entry : snapshot) {
+                    writer.write(entry.getKey());
+                    writer.write('\t');
+                    writer.write(entry.getValue());
+                    writer.newLine();
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Cannot save classification cache: " + e.getMessage());
+            synchronized (this) {
+                dirty = true;
+            }
+        }
+    }
+
+    private void load() {
+        if (file == null || !file.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int tab = line.lastIndexOf('\t');
+                if (tab > 0 && tab < line.length() - 1) {
+                    entries.put(line.substring(0, tab), line.substring(tab + 1));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot load classification cache: " + e.getMessage());
+        }
+    }
+}
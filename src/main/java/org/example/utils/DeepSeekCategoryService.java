@@ -1,16 +1,20 @@
 package org.example.utils;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
 
 public class DeepSeekCategoryService {
 
@@ -30,15 +34,66 @@ public class DeepSeekCategoryService {
             "Income",
             "Other");
 
-    // API URL和Key（实际使用时应从配置文件加载）
-    private static final String API_URL = "https://api.deepseek.com/v1/chat/completions";
-    private static final String API_KEY = "sk-c4dc6fa348f24f6ab3ddc5514041676d"; // 更新为用户提供的API密钥
+    // 批量分类时每个请求的token预算（提示、交易和回复合计），按它决定每批的交易数
+    private static final int BATCH_TOKEN_BUDGET = 4000;
+
+    // 每批最多的交易数
+    private static final int MAX_BATCH_SIZE = 100;
+
+    // 回复中每个分类大约占用的token数
+    private static final int TOKENS_PER_ANSWER = 8;
+
+    // 正在进行中的分类，按缓存键索引；相同商户的并发请求共用同一个结果
+    private static final Map<String, CompletableFuture<String>> IN_FLIGHT = new ConcurrentHashMap<>();
 
     private final ExecutorService executorService;
+    private final ClassificationCache cache;
+    private final LocalCategoryModel localModel;
+    private final AiConfig config;
+    private volatile boolean localFallback = true;
+    // 本实例发送的API请求数
+    private final AtomicInteger remoteRequests = new AtomicInteger();
 
     public DeepSeekCategoryService() {
-        // 创建一个固定大小的线程池用于异步处理请求
-        this.executorService = Executors.newFixedThreadPool(3);
+        this(ClassificationCache.shared());
+    }
+
+    public DeepSeekCategoryService(ClassificationCache cache) {
+        this(cache, null);
+    }
+
+    /**
+     * @param cache      分类结果缓存，命中时不调用API
+     * @param localModel 用户的本地分类模型，置信度足够时不调用API；可以为null
+     */
+    public DeepSeekCategoryService(ClassificationCache cache, LocalCategoryModel localModel) {
+        this(cache, localModel, AiConfig.get());
+    }
+
+    /**
+     * @param config API的端点、模型和密钥
+     */
+    public DeepSeekCategoryService(ClassificationCache cache, LocalCategoryModel localModel, AiConfig config) {
+        // 使用共用的请求线程池，实际的并发请求数由AiHttpClient按API的响应情况调整
+        this.executorService = AiHttpClient.requestExecutor();
+        this.cache = cache;
+        this.localModel = localModel;
+        this.config = config;
+    }
+
+    /**
+     * 批量分类时API不可用的交易是否使用本地的关键词分类
+     * 关闭时这些交易的结果为null，调用方可以稍后重新分类
+     */
+    public void setLocalFallback(boolean localFallback) {
+        this.localFallback = localFallback;
+    }
+
+    /**
+     * @return 本实例已发送的API请求数，为0时所有结果都来自规则、缓存或本地模型
+     */
+    public int getRemoteRequests() {
+        return remoteRequests.get();
     }
 
     /**
@@ -49,44 +104,230 @@ public class DeepSeekCategoryService {
      * @return 返回包含分类结果的CompletableFuture
      */
     public CompletableFuture<String> classifyTransactionAsync(String description, String amount) {
-        return CompletableFuture.supplyAsync(() -> {
+        // 相同的交易正在分类时等待它的结果
+        String key = ClassificationCache.keyOf(description, amount);
+        CompletableFuture<String> promise = new CompletableFuture<>();
+        CompletableFuture<String> running = IN_FLIGHT.putIfAbsent(key, promise);
+        if (running != null) {
+            return running;
+        }
+
+        CompletableFuture.runAsync(() -> {
+            String category;
             try {
-                return classifyTransaction(description, amount);
-            } catch (IOException e) {
-                e.printStackTrace();
-                return "Other"; // 默认分类
+                category = classifyTransaction(description, amount);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("AI classification failed: " + e.getMessage());
+                category = "Other"; // 默认分类
             }
+            IN_FLIGHT.remove(key, promise);
+            promise.complete(category);
         }, executorService);
+        return promise;
     }
 
     /**
      * 批量分类交易
+     * 先用自定义规则和缓存分类，其余的交易按token预算打包，每批发送一个请求，
+     * 要求API按顺序返回分类名称的JSON数组，再按下标对应回各个交易
      * 
      * @param descriptions 交易描述列表
      * @param amounts      交易金额列表
-     * @return 返回包含所有分类结果的CompletableFuture
+     * @return 返回包含所有分类结果的CompletableFuture，顺序与参数相同；
+     *         关闭本地备用分类时API不可用的交易为null
      */
     public CompletableFuture<List<String>> classifyTransactionsAsync(List<String> descriptions, List<String> amounts) {
-        // 创建一个CompletableFuture数组
-        @SuppressWarnings("unchecked")
-        CompletableFuture<String>[] futures = new CompletableFuture[descriptions.size()];
+        String[] results = new String[descriptions.size()];
+        String[] keys = new String[descriptions.size()];
+        List<Integer> pending = new ArrayList<>();
+        List<CompletableFuture<?>> waits = new ArrayList<>();
 
-        // 为每个交易创建一个异步任务
+        // 相同的商户只发送一次：本次负责的交易放入pending，其余的等待负责的请求（可能来自其他调用）
+        Map<String, CompletableFuture<String>> owned = new HashMap<>();
+        int classifiedLocally = 0;
         for (int i = 0; i < descriptions.size(); i++) {
-            String description = descriptions.get(i);
-            String amount = amounts.get(i);
-            futures[i] = classifyTransactionAsync(description, amount);
+            results[i] = classifyLocally(descriptions.get(i), amounts.get(i));
+            if (results[i] != null) {
+                classifiedLocally++;
+                continue;
+            }
+            keys[i] = ClassificationCache.keyOf(descriptions.get(i), amounts.get(i));
+            CompletableFuture<String> shared = owned.get(keys[i]);
+            if (shared == null) {
+                CompletableFuture<String> promise = new CompletableFuture<>();
+                shared = IN_FLIGHT.putIfAbsent(keys[i], promise);
+                if (shared == null) {
+                    owned.put(keys[i], promise);
+                    pending.add(i);
+                    continue;
+                }
+            }
+            int index = i;
+            waits.add(shared.thenAccept(category -> results[index] = category));
         }
 
-        // 合并所有结果
-        return CompletableFuture.allOf(futures)
+        String systemPrompt = batchSystemPrompt();
+        List<List<Integer>> batches = packBatches(pending, descriptions, estimateTokens(systemPrompt));
+        if (classifiedLocally > 0 || !batches.isEmpty()) {
+            System.out.println("AI分类: " + classifiedLocally + " 条交易在本地分类, "
+                    + pending.size() + " 条交易分为 " + batches.size() + " 个请求");
+        }
+
+        // 每批写入results中互不重叠的位置，完成后把结果交给等待相同商户的调用
+        for (List<Integer> batch : batches) {
+            waits.add(CompletableFuture.runAsync(() -> {
+                try {
+                    classifyBatch(systemPrompt, batch, descriptions, amounts, results, true);
+                } finally {
+                    // API不可用的交易结果为null，由下面统一处理
+                    for (int index : batch) {
+                        CompletableFuture<String> promise = owned.get(keys[index]);
+                        IN_FLIGHT.remove(keys[index], promise);
+                        promise.complete(results[index]);
+                    }
+                }
+            }, executorService));
+        }
+
+        // 合并所有结果，整批完成后保存一次缓存
+        return CompletableFuture.allOf(waits.toArray(new CompletableFuture[0]))
                 .thenApply(v -> {
-                    return Arrays.stream(futures)
-                            .map(CompletableFuture::join)
-                            .toList();
+                    cache.flush();
+                    if (localFallback) {
+                        for (int i = 0; i < results.length; i++) {
+                            if (results[i] == null) {
+                                results[i] = mockClassification(descriptions.get(i), amounts.get(i));
+                            }
+                        }
+                    }
+                    return Arrays.asList(results);
                 });
     }
 
+    /**
+     * 按token预算把交易打包成批：提示只计算一次，每个交易计算描述、金额和回复的token
+     */
+    static List<List<Integer>> packBatches(List<Integer> pending, List<String> descriptions, int promptTokens) {
+        int budget = Math.max(BATCH_TOKEN_BUDGET - promptTokens, TOKENS_PER_ANSWER * 16);
+        List<List<Integer>> batches = new ArrayList<>();
+        List<Integer> batch = new ArrayList<>();
+        int used = 0;
+        for (int index : pending) {
+            int cost = estimateTokens(descriptions.get(index)) + TOKENS_PER_ANSWER + 8;
+            if (!batch.isEmpty() && (used + cost > budget || batch.size() >= MAX_BATCH_SIZE)) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+                used = 0;
+            }
+            batch.add(index);
+            used += cost;
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    /**
+     * 粗略估计token数：ASCII字符约4个一个token，中文等其他字符每个一个token
+     */
+    static int estimateTokens(String text) {
+        if (text == null) {
+            return 0;
+        }
+        int ascii = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) < 128) {
+                ascii++;
+            } else {
+                other++;
+            }
+        }
+        return (ascii + 3) / 4 + other;
+    }
+
+    /**
+     * 分类一批交易；回复的数组与交易数不一致时把这一批拆成两半各重试一次，
+     * 拆开后仍不一致或API不可用时结果留空，最多发送三个请求
+     *
+     * @param splittable 是否还可以拆分重试
+     */
+    private void classifyBatch(String systemPrompt, List<Integer> batch, List<String> descriptions,
+            List<String> amounts, String[] results, boolean splittable) {
+        StringBuilder userContent = new StringBuilder("Transactions:\n");
+        for (int i = 0; i < batch.size(); i++) {
+            int index = batch.get(i);
+            userContent.append(i + 1).append(". ")
+                    .append(descriptions.get(index)).append(" | Amount: ").append(amounts.get(index)).append('\n');
+        }
+
+        List<String> categories;
+        try {
+            remoteRequests.incrementAndGet();
+            categories = parseCategoryArray(extractContent(postChat(systemPrompt, userContent.toString())));
+        } catch (IOException e) {
+            System.err.println("AI batch classification failed: " + e.getMessage());
+            return;
+        }
+
+        if (categories == null || categories.size() != batch.size()) {
+            if (batch.size() == 1) {
+                results[batch.get(0)] = "Other";
+                return;
+            }
+            if (!splittable) {
+                System.err.println("AI batch classification returned " + (categories == null ? "no" : categories.size())
+                        + " categories for " + batch.size() + " transactions");
+                return;
+            }
+            int half = batch.size() / 2;
+            classifyBatch(systemPrompt, batch.subList(0, half), descriptions, amounts, results, false);
+            classifyBatch(systemPrompt, batch.subList(half, batch.size()), descriptions, amounts, results, false);
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            int index = batch.get(i);
+            String category = categories.get(i);
+            // 只缓存API给出的有效分类
+            if (PREDEFINED_CATEGORIES.contains(category)) {
+                cache.put(descriptions.get(index), amounts.get(index), category);
+                results[index] = category;
+            } else {
+                results[index] = "Other";
+            }
+        }
+    }
+
+    /**
+     * 不调用API的分类：依次使用用户定义的规则、缓存和本地模型
+     *
+     * @return 分类，都没有命中时为null
+     */
+    private String classifyLocally(String description, String amount) {
+        String category = CategoryRulesManager.findMatchingCategory(description);
+        if (category != null) {
+            return category;
+        }
+        // 同一商户之前分类过时直接使用缓存的结果
+        category = cache.get(description, amount);
+        if (category == null && localModel != null) {
+            category = localModel.predict(description, amount);
+        }
+        return category;
+    }
+
+    private static String batchSystemPrompt() {
+        String systemPrompt = "You are a financial transaction classifier. " +
+                "You will receive a numbered list of transactions. " +
+                "Classify each transaction into exactly one of these categories: " +
+                String.join(", ", PREDEFINED_CATEGORIES) + ". " +
+                "Respond with only a JSON array of category names, one per transaction, in the same order.";
+        String userRulesPrompt = CategoryRulesManager.generateClassificationPrompt();
+        return userRulesPrompt.isEmpty() ? systemPrompt : systemPrompt + "\n\n" + userRulesPrompt;
+    }
+
     /**
      * 同步分类单个交易
      * 
@@ -96,29 +337,12 @@ public class DeepSeekCategoryService {
      * @throws IOException 如果API请求失败
      */
     private String classifyTransaction(String description, String amount) throws IOException {
-        // 首先尝试使用用户定义的规则进行分类
-        String category = CategoryRulesManager.findMatchingCategory(description);
+        // 首先尝试使用用户定义的规则和缓存进行分类
+        String category = classifyLocally(description, amount);
         if (category != null) {
-            System.out.println("使用自定义规则将描述 \"" + description + "\" 分类为: " + category);
             return category;
         }
 
-        // 如果没有匹配的规则，使用模拟API调用（演示用）
-        // 在实际项目中，这里应当替换为真正的API调用代码
-        if (System.getenv("DEEPSEEK_API_KEY") == null || System.getenv("DEEPSEEK_API_KEY").isEmpty()) {
-            // 使用硬编码的API密钥，而不是环境变量
-            // 没有环境变量API密钥时，使用硬编码的API_KEY
-            // return mockClassification(description, amount);
-        }
-
-        // 构建API请求
-        URL url = new URL(API_URL);
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestMethod("POST");
-        connection.setRequestProperty("Content-Type", "application/json");
-        connection.setRequestProperty("Authorization", "Bearer " + API_KEY);
-        connection.setDoOutput(true);
-
         // 获取用户定义的分类规则提示
         String userRulesPrompt = CategoryRulesManager.generateClassificationPrompt();
 
@@ -133,47 +357,93 @@ public class DeepSeekCategoryService {
             systemPrompt = systemPrompt + "\n\n" + userRulesPrompt;
         }
 
-        // 完整的请求体
-        String requestBody = String.format(
-                "{\"model\":\"deepseek-chat\",\"messages\":[{\"role\":\"system\",\"content\":\"%s\"},{\"role\":\"user\",\"content\":\"Transaction description: %s, Amount: %s\"}]}",
-                systemPrompt.replace("\"", "\\\""),
-                description.replace("\"", "\\\""),
-                amount.replace("\"", "\\\""));
-
-        // 发送请求
-        try (OutputStream os = connection.getOutputStream()) {
-            byte[] input = requestBody.getBytes("utf-8");
-            os.write(input, 0, input.length);
-        }
-
-        // 读取响应
-        StringBuilder response = new StringBuilder();
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(connection.getInputStream(), "utf-8"))) {
-            String responseLine;
-            while ((responseLine = br.readLine()) != null) {
-                response.append(responseLine.trim());
-            }
+        String response;
+        try {
+            remoteRequests.incrementAndGet();
+            response = postChat(systemPrompt, "Transaction description: " + description + ", Amount: " + amount);
         } catch (IOException e) {
             // 如果API调用失败，使用模拟分类
             return mockClassification(description, amount);
         }
+        String responseCategory = extractContent(response).trim();
 
-        // 解析响应（简化版，实际应当使用JSON库）
-        String result = response.toString();
-        // 从JSON响应中提取分类结果
-        // 这是一个简化处理，实际中应使用JSON解析库
-        int contentStart = result.indexOf("\"content\":\"") + 11;
-        int contentEnd = result.indexOf("\"", contentStart);
-        String responseCategory = result.substring(contentStart, contentEnd);
-
-        // 验证结果是否在我们的类别中
+        // 验证结果是否在我们的类别中，只缓存API给出的有效分类
         if (PREDEFINED_CATEGORIES.contains(responseCategory)) {
+            cache.put(description, amount, responseCategory);
             return responseCategory;
         } else {
             return "Other";
         }
     }
 
+    /**
+     * 发送一次对话请求
+     *
+     * @return 响应的JSON
+     * @throws IOException 如果API请求失败或没有配置API密钥
+     */
+    @SuppressWarnings("unchecked")
+    String postChat(String systemPrompt, String userContent) throws IOException {
+        // 没有密钥时不发送请求，避免把请求发到未授权的端点
+        if (!config.hasApiKey()) {
+            throw new IOException("AI API key not configured");
+        }
+        JSONObject systemMessage = new JSONObject();
+        systemMessage.put("role", "system");
+        systemMessage.put("content", systemPrompt);
+        JSONObject userMessage = new JSONObject();
+        userMessage.put("role", "user");
+        userMessage.put("content", userContent);
+        JSONArray messages = new JSONArray();
+        messages.add(systemMessage);
+        messages.add(userMessage);
+        JSONObject requestBody = new JSONObject();
+        requestBody.put("model", config.getModel());
+        requestBody.put("messages", messages);
+
+        // 通过共用的客户端发送，复用到API的连接
+        return AiHttpClient.postJson(config.getEndpoint(), config.getApiKey(), requestBody.toJSONString());
+    }
+
+    /**
+     * 从对话响应中取出第一条回复的内容
+     *
+     * @throws IOException 响应不是预期的格式
+     */
+    static String extractContent(String response) throws IOException {
+        try {
+            JSONObject json = (JSONObject) new JSONParser().parse(response);
+            JSONArray choices = (JSONArray) json.get("choices");
+            JSONObject message = (JSONObject) ((JSONObject) choices.get(0)).get("message");
+            return String.valueOf(message.get("content"));
+        } catch (ParseException | ClassCastException | NullPointerException | IndexOutOfBoundsException e) {
+            throw new IOException("Unexpected API response", e);
+        }
+    }
+
+    /**
+     * 解析批量分类回复中的JSON数组，允许数组前后有其他文字（例如代码块标记）
+     *
+     * @return 分类列表，回复中没有字符串数组时为null
+     */
+    static List<String> parseCategoryArray(String content) {
+        int start = content.indexOf('[');
+        int end = content.lastIndexOf(']');
+        if (start < 0 || end < start) {
+            return null;
+        }
+        try {
+            JSONArray array = (JSONArray) new JSONParser().parse(content.substring(start, end + 1));
+            List<String> categories = new ArrayList<>(array.size());
+            for (Object item : array) {
+                categories.add(String.valueOf(item).trim());
+            }
+            return categories;
+        } catch (ParseException | ClassCastException e) {
+            return null;
+        }
+    }
+
     /**
      * 模拟分类逻辑，当API不可用时使用
      */
@@ -228,12 +498,10 @@ public class DeepSeekCategoryService {
     }
 
     /**
-     * 关闭服务
+     * 关闭服务：保存缓存；线程池是共用的，不关闭
      */
     public void shutdown() {
-        if (executorService != null && !executorService.isShutdown()) {
-            executorService.shutdown();
-        }
+        cache.flush();
     }
 
     /**
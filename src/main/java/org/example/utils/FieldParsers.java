@@ -0,0 +1,85 @@
+package org.example.utils;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+
+/**
+ * 不抛出异常的字段解析
+ * 格式错误时返回NaN或null，由调用方记录到ParseErrorReport，
+ * 脏数据较多的文件不会因为逐行创建异常而变慢
+ */
+public class FieldParsers {
+
+    private FieldParsers() {
+    }
+
+    /**
+     * 解析金额，忽略空白、千位分隔符和常见货币符号
+     *
+     * @return 金额，格式错误时返回NaN
+     */
+    public static double parseAmount(String text) {
+        if (text == null) {
+            return Double.NaN;
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean digits = false;
+        boolean point = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                sb.append(c);
+                digits = true;
+            } else if (c == '.' && !point) {
+                sb.append(c);
+                point = true;
+            } else if ((c == '-' || c == '+') && sb.length() == 0) {
+                sb.append(c);
+            } else if (!isIgnored(c)) {
+                return Double.NaN;
+            }
+        }
+        return digits ? Double.parseDouble(sb.toString()) : Double.NaN;
+    }
+
+    private static boolean isIgnored(char c) {
+        return Character.isWhitespace(c) || c == ',' || c == '¥' || c == '￥' || c == '$' || c == '€' || c == '£';
+    }
+
+    /**
+     * 解析 yyyy-MM-dd 格式的日期，后面可以带时间（以空格或T分隔，时间部分忽略）
+     *
+     * @return 日期，格式错误时返回null
+     */
+    public static LocalDate parseDate(String text) {
+        if (text == null) {
+            return null;
+        }
+        String s = text.trim();
+        if (s.length() < 10 || s.charAt(4) != '-' || s.charAt(7) != '-'
+                || (s.length() > 10 && s.charAt(10) != ' ' && s.charAt(10) != 'T')) {
+            return null;
+        }
+        int year = digits(s, 0, 4);
+        int month = digits(s, 5, 7);
+        int day = digits(s, 8, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1) {
+            return null;
+        }
+        int monthLength = Month.of(month).length(Year.isLeap(year));
+        return day <= monthLength ? LocalDate.of(year, month, day) : null;
+    }
+
+    private static int digits(String s, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,132 @@
+package org.example.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 关键词匹配自动机（Aho–Corasick）
+ * 把所有关键词编译成一个自动机，对描述只扫描一遍即可找出所有出现的关键词，
+ * 耗时与描述长度成正比，与关键词数量无关。匹配不区分大小写。
+ * 多个关键词同时出现时使用最长的一个；长度相同时使用先添加的一个。
+ * 实例创建后不再修改，可以被多个线程同时使用。
+ */
+public class KeywordMatcher {
+
+    // 每个状态的转移，下标为状态编号
+    private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+    private int[] failure;
+    // 在该状态结束的优先级最高的关键词（包括失败链上的），没有时为-1
+    private int[] best;
+    private final List<String> keywords = new ArrayList<>();
+    private final List<String> values = new ArrayList<>();
+
+    /**
+     * @param rules 关键词到结果的映射，迭代顺序即关键词的先后顺序
+     */
+    public KeywordMatcher(Map<String, String> rules) {
+        transitions.add(new HashMap<>());
+        List<Integer> terminal = new ArrayList<>();
+        terminal.add(-1);
+        for (Map.Entry<String, String> rule : rules.entrySet()) {
+            String keyword = rule.getKey().toLowerCase(Locale.ROOT);
+            if (keyword.isEmpty()) {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                Integer next = transitions.get(state).get(keyword.charAt(i));
+                if (next == null) {
+                    next = transitions.size();
+                    transitions.get(state).put(keyword.charAt(i), next);
+                    transitions.add(new HashMap<>());
+                    terminal.add(-1);
+                }
+                state = next;
+            }
+            // 重复的关键词保留先添加的
+            if (terminal.get(state) < 0) {
+                terminal.set(state, keywords.size());
+                keywords.add(keyword);
+                values.add(rule.getValue());
+            }
+        }
+        build(terminal);
+    }
+
+    // 按广度优先计算失败链接，并沿失败链合并每个状态的最佳关键词
+    private void build(List<Integer> terminal) {
+        int size = transitions.size();
+        failure = new int[size];
+        best = new int[size];
+        best[0] = -1;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int child : transitions.get(0).values()) {
+            failure[child] = 0;
+            best[child] = terminal.get(child);
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (Map.Entry<Character, Integer> edge : transitions.get(state).entrySet()) {
+                int child = edge.getValue();
+                int fail = failure[state];
+                while (fail > 0 && !transitions.get(fail).containsKey(edge.getKey())) {
+                    fail = failure[fail];
+                }
+                Integer target = transitions.get(fail).get(edge.getKey());
+                failure[child] = target != null && target != child ? target : 0;
+                best[child] = better(terminal.get(child), best[failure[child]]);
+                queue.add(child);
+            }
+        }
+    }
+
+    private int better(int a, int b) {
+        if (a < 0) {
+            return b;
+        }
+        if (b < 0) {
+            return a;
+        }
+        int la = keywords.get(a).length();
+        int lb = keywords.get(b).length();
+        if (la != lb) {
+            return la > lb ? a : b;
+        }
+        return Math.min(a, b);
+    }
+
+    /**
+     * 在文本中查找优先级最高的关键词
+     *
+     * @return 对应的结果，没有关键词出现时为null
+     */
+    public String match(String text) {
+        int found = find(text);
+        return found >= 0 ? values.get(found) : null;
+    }
+
+    private int find(String text) {
+        if (text == null || keywords.isEmpty()) {
+            return -1;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int state = 0;
+        int found = -1;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            Integer next = transitions.get(state).get(c);
+            while (next == null && state > 0) {
+                state = failure[state];
+                next = transitions.get(state).get(c);
+            }
+            state = next != null ? next : 0;
+            found = better(best[state], found);
+        }
+        return found;
+    }
+}
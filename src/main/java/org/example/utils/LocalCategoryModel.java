@@ -0,0 +1,302 @@
+package org.example.utils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 本地分类模型：基于字符n-gram的多项式朴素贝叶斯
+ * 特征为规范化描述（数字替换为#）的1到3个字符的片段，再加上金额的正负，
+ * 按字符切分不依赖分词，中文商户名同样适用。模型由用户自己已分类的交易增量训练，
+ * 每个用户保存在 "<用户名>_category_model.txt"。
+ * 预测的后验概率达到阈值、且描述中的大部分片段在训练中出现过时直接使用本地结果，不再调用远程API。
+ */
+public class LocalCategoryModel {
+
+    // 使用本地结果所需的最低后验概率
+    public static final double DEFAULT_THRESHOLD = 0.9;
+
+    // 预测的分类至少需要的训练样本数
+    private static final int MIN_CATEGORY_DOCS = 3;
+
+    private static final int MAX_GRAM = 3;
+
+    private static final Map<String, LocalCategoryModel> MODELS = new ConcurrentHashMap<>();
+
+    private final File file;
+    private final List<String> categories = new ArrayList<>();
+    private final Map<String, Integer> categoryIndex = new HashMap<>();
+    // 每个片段在各分类中出现的次数，下标与categories一致
+    private final Map<String, int[]> gramCounts = new HashMap<>();
+    private int[] docCounts = new int[0];
+    private long[] gramTotals = new long[0];
+    private long trainedThroughId;
+    private boolean dirty;
+
+    /**
+     * @param file 模型文件，为null时只在内存中训练
+     */
+    public LocalCategoryModel(File file) {
+        this.file = file;
+        load();
+    }
+
+    /**
+     * 当前目录下用户的模型，同一用户共用一个实例
+     */
+    public static LocalCategoryModel forUser(String username) {
+        return MODELS.computeIfAbsent(username,
+                key -> new LocalCategoryModel(new File(key + "_category_model.txt")));
+    }
+
+    /**
+     * 描述和金额对应的特征：规范化描述的1到3字符片段（前后加边界标记）和金额的正负
+     */
+    static List<String> features(String description, String amount) {
+        String text = "^" + ClassificationCache.normalizeMerchant(description) + "$";
+        List<String> grams = new ArrayList<>(text.length() * MAX_GRAM + 1);
+        for (int n = 1; n <= MAX_GRAM; n++) {
+            for (int i = 0; i + n <= text.length(); i++) {
+                grams.add(text.substring(i, i + n));
+            }
+        }
+        double value = FieldParsers.parseAmount(amount);
+        grams.add(Double.isNaN(value) ? "\u0000?" : value < 0 ? "\u0000-" : "\u0000+");
+        return grams;
+    }
+
+    /**
+     * 学习一条已分类的交易
+     */
+    public synchronized void learn(String description, String amount, String category) {
+        update(description, amount, category, 1);
+    }
+
+    /**
+     * 用户修改分类时撤销旧分类的样本并学习新分类
+     */
+    public synchronized void relabel(String description, String amount, String oldCategory, String newCategory) {
+        if (oldCategory != null && categoryIndex.containsKey(oldCategory)) {
+            update(description, amount, oldCategory, -1);
+        }
+        update(description, amount, newCategory, 1);
+    }
+
+    private void update(String description, String amount, String category, int delta) {
+        if (category == null || category.isEmpty() || "Uncategorized".equals(category)) {
+            return;
+        }
+        int c = indexOf(category);
+        docCounts[c] = Math.max(0, docCounts[c] + delta);
+        for (String gram : features(description, amount)) {
+            int[] counts = gramCounts.computeIfAbsent(gram, key -> new int[categories.size()]);
+            if (counts.length < categories.size()) {
+                counts = Arrays.copyOf(counts, categories.size());
+                gramCounts.put(gram, counts);
+            }
+            int before = counts[c];
+            counts[c] = Math.max(0, before + delta);
+            gramTotals[c] += counts[c] - before;
+        }
+        dirty = true;
+    }
+
+    private int indexOf(String category) {
+        Integer index = categoryIndex.get(category);
+        if (index != null) {
+            return index;
+        }
+        categoryIndex.put(category, categories.size());
+        categories.add(category);
+        docCounts = Arrays.copyOf(docCounts, categories.size());
+        gramTotals = Arrays.copyOf(gramTotals, categories.size());
+        return categories.size() - 1;
+    }
+
+    /**
+     * 预测分类
+     *
+     * @return 后验概率达到阈值时的分类，否则为null
+     */
+    public String predict(String description, String amount) {
+        return predict(description, amount, DEFAULT_THRESHOLD);
+    }
+
+    public synchronized String predict(String description, String amount, double threshold) {
+        int k = categories.size();
+        long totalDocs = 0;
+        for (int count : docCounts) {
+            totalDocs += count;
+        }
+        if (k < 2 || totalDocs == 0) {
+            return null;
+        }
+
+        // 对数空间中计算各分类的得分，拉普拉斯平滑
+        double[] scores = new double[k];
+        int vocabulary = gramCounts.size();
+        for (int c = 0; c < k; c++) {
+            scores[c] = Math.log((docCounts[c] + 1.0) / (totalDocs + k));
+        }
+        // 训练中没见过的片段不参与计算；大部分片段都没见过时说明是陌生的商户，不做预测
+        List<String> grams = features(description, amount);
+        int known = 0;
+        for (String gram : grams) {
+            int[] counts = gramCounts.get(gram);
+            if (counts == null) {
+                continue;
+            }
+            known++;
+            for (int c = 0; c < k; c++) {
+                int count = c < counts.length ? counts[c] : 0;
+                scores[c] += Math.log((count + 1.0) / (gramTotals[c] + vocabulary));
+            }
+        }
+        if (known * 2 < grams.size()) {
+            return null;
+        }
+
+        int best = 0;
+        for (int c = 1; c < k; c++) {
+            if (scores[c] > scores[best]) {
+                best = c;
+            }
+        }
+        double sum = 0;
+        for (int c = 0; c < k; c++) {
+            sum += Math.exp(scores[c] - scores[best]);
+        }
+        double confidence = 1.0 / sum;
+        return confidence >= threshold && docCounts[best] >= MIN_CATEGORY_DOCS ? categories.get(best) : null;
+    }
+
+    /**
+     * @return 已训练到的最大交易ID，之后只需要学习ID更大的交易
+     */
+    public synchronized long getTrainedThroughId() {
+        return trainedThroughId;
+    }
+
+    public synchronized void setTrainedThroughId(long id) {
+        if (id > trainedThroughId) {
+            trainedThroughId = id;
+            dirty = true;
+        }
+    }
+
+    /**
+     * 有变化时写回模型文件
+     */
+    public synchronized void save() {
+        if (file == null || !dirty) {
+            return;
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            try (BufferedWriter writer = new BufferedWriter(
+                    new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+                writer.write("trained\t" + trainedThroughId);
+                writer.newLine();
+                writer.write("categories\t" + String.join("\t", categories));
+                writer.newLine();
+                writer.write("docs" + joinCounts(docCounts));
+                writer.newLine();
+                for (Map.Entry<String, int[]> entry : gramCounts.entrySet()) {
+                    writer.write(escape(entry.getKey()) + joinCounts(entry.getValue()));
+                    writer.newLine();
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } catch (IOException e) {
+            System.err.println("Cannot save category model: " + e.getMessage());
+        }
+    }
+
+    private static String joinCounts(int[] counts) {
+        StringBuilder sb = new StringBuilder();
+        for (int count : counts) {
+            sb.append('\t').append(count);
+        }
+        return sb.toString();
+    }
+
+    // 片段中的特殊字符转义，保证一行一个片段
+    private static String escape(String gram) {
+        return gram.replace("\\", "\\\\").replace("\t", "\\t").replace("\u0000", "\\0");
+    }
+
+    private static String unescape(String gram) {
+        StringBuilder sb = new StringBuilder(gram.length());
+        for (int i = 0; i < gram.length(); i++) {
+            char c = gram.charAt(i);
+            if (c == '\\' && i + 1 < gram.length()) {
+                char next = gram.charAt(++i);
+                sb.append(next == 't' ? '\t' : next == '0' ? '\u0000' : next);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private void load() {
+        if (file == null || !file.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String[] trained = reader.readLine().split("\t");
+            String[] names = reader.readLine().split("\t", -1);
+            String[] docs = reader.readLine().split("\t");
+            Set<String> unique = new LinkedHashSet<>(Arrays.asList(names).subList(1, names.length));
+            if (unique.size() != names.length - 1 || docs.length != names.length) {
+                throw new IOException("inconsistent model header");
+            }
+            trainedThroughId = Long.parseLong(trained[1]);
+            for (String name : unique) {
+                indexOf(name);
+            }
+            for (int c = 0; c < categories.size(); c++) {
+                docCounts[c] = Integer.parseInt(docs[c + 1]);
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                int[] counts = new int[categories.size()];
+                for (int c = 0; c < counts.length && c + 1 < parts.length; c++) {
+                    counts[c] = Integer.parseInt(parts[c + 1]);
+                    gramTotals[c] += counts[c];
+                }
+                gramCounts.put(unescape(parts[0]), counts);
+            }
+        } catch (IOException | RuntimeException e) {
+            // 模型文件损坏时从头训练
+            System.err.println("Cannot load category model, retraining: " + e.getMessage());
+            categories.clear();
+            categoryIndex.clear();
+            gramCounts.clear();
+            docCounts = new int[0];
+            gramTotals = new long[0];
+            trainedThroughId = 0;
+        }
+    }
+}
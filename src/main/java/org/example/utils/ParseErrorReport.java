@@ -0,0 +1,205 @@
+package org.example.utils;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 解析错误报告
+ * 解析时不抛出异常也不逐行打印，出错的行记录在这里：内存中最多保留maxErrors条（行号、列、原因），
+ * 所有出错的原始行写入拒绝文件，用户修改后可以重新导入。多个解析线程可以共用同一个报告。
+ */
+public class ParseErrorReport implements Closeable {
+
+    // 内存中默认保留的错误条数
+    public static final int DEFAULT_MAX_ERRORS = 100;
+
+    private static final String REJECT_HEADER = "Source,Line,Column,Reason,Row";
+
+    private final int maxErrors;
+    private final File rejectFile;
+    private final List<ParseError> errors = new ArrayList<>();
+    private int errorCount;
+    private BufferedWriter rejectWriter;
+    private boolean rejectFailed;
+
+    /**
+     * @param maxErrors  内存中保留的错误条数
+     * @param rejectFile 拒绝文件，为null时不写出
+     */
+    public ParseErrorReport(int maxErrors, File rejectFile) {
+        this.maxErrors = Math.max(0, maxErrors);
+        this.rejectFile = rejectFile;
+    }
+
+    /**
+     * 源文件对应的拒绝文件：同一目录下的 "<文件名>_rejects.csv"
+     */
+    public static File rejectFileFor(File source) {
+        String name = source.getName();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        return new File(source.getAbsoluteFile().getParentFile(), base + "_rejects.csv");
+    }
+
+    /**
+     * 记录一行解析错误
+     *
+     * @param source 出错的文件名
+     * @param line   行号，从1开始
+     * @param column 出错的列，从1开始；整行有问题（例如列数不足）时为0
+     * @param reason 原因
+     * @param row    原始行的各列
+     */
+    public void record(String source, long line, int column, String reason, String[] row) {
+        record(source, line, column, reason, toCsvLine(row));
+    }
+
+    public synchronized void record(String source, long line, int column, String reason, String rawLine) {
+        errorCount++;
+        if (errors.size() < maxErrors) {
+            errors.add(new ParseError(source, line, column, reason));
+        }
+        writeReject(source, line, column, reason, rawLine);
+    }
+
+    private void writeReject(String source, long line, int column, String reason, String rawLine) {
+        if (rejectFile == null || rejectFailed) {
+            return;
+        }
+        try {
+            if (rejectWriter == null) {
+                rejectWriter = new BufferedWriter(new OutputStreamWriter(
+                        new FileOutputStream(rejectFile), StandardCharsets.UTF_8));
+                rejectWriter.write(REJECT_HEADER);
+                rejectWriter.newLine();
+            }
+            rejectWriter.write(toCsvLine(new String[] { source, String.valueOf(line), String.valueOf(column), reason }));
+            rejectWriter.write(',');
+            rejectWriter.write(rawLine);
+            rejectWriter.newLine();
+        } catch (IOException e) {
+            // 拒绝文件写不出时只保留内存中的报告
+            rejectFailed = true;
+            System.err.println("Cannot write reject file " + rejectFile + ": " + e.getMessage());
+        }
+    }
+
+    public synchronized int getErrorCount() {
+        return errorCount;
+    }
+
+    public synchronized boolean hasErrors() {
+        return errorCount > 0;
+    }
+
+    /**
+     * @return 保留的前maxErrors条错误
+     */
+    public synchronized List<ParseError> getErrors() {
+        return Collections.unmodifiableList(new ArrayList<>(errors));
+    }
+
+    /**
+     * @return 写出的拒绝文件，没有错误时为null
+     */
+    public synchronized File getRejectFile() {
+        return rejectWriter != null && !rejectFailed ? rejectFile : null;
+    }
+
+    /**
+     * 一行摘要，没有错误时返回空字符串
+     */
+    public synchronized String summary() {
+        if (errorCount == 0) {
+            return "";
+        }
+        String summary = errorCount + " rows could not be parsed";
+        if (!errors.isEmpty()) {
+            summary += " (first: " + errors.get(0) + ")";
+        }
+        File written = getRejectFile();
+        return written != null ? summary + ", see " + written.getName() : summary;
+    }
+
+    /**
+     * 关闭拒绝文件；本次没有错误时删除上一次留下的拒绝文件
+     */
+    @Override
+    public synchronized void close() {
+        if (rejectWriter != null) {
+            try {
+                rejectWriter.close();
+            } catch (IOException e) {
+                System.err.println("Cannot close reject file " + rejectFile + ": " + e.getMessage());
+            }
+        } else if (errorCount == 0 && rejectFile != null && rejectFile.exists() && !rejectFile.delete()) {
+            System.err.println("Cannot delete stale reject file " + rejectFile);
+        }
+    }
+
+    /**
+     * 把各列按CSV格式连接，包含逗号、引号或换行的列加引号
+     */
+    public static String toCsvLine(String[] cells) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < cells.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            String cell = cells[i] == null ? "" : cells[i];
+            if (cell.indexOf(',') >= 0 || cell.indexOf('"') >= 0 || cell.indexOf('\n') >= 0 || cell.indexOf('\r') >= 0) {
+                sb.append('"').append(cell.replace("\"", "\"\"")).append('"');
+            } else {
+                sb.append(cell);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 一条解析错误
+     */
+    public static class ParseError {
+        private final String source;
+        private final long line;
+        private final int column;
+        private final String reason;
+
+        public ParseError(String source, long line, int column, String reason) {
+            this.source = source;
+            this.line = line;
+            this.column = column;
+            this.reason = reason;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public int getColumn() {
+            return column;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            String location = source + " line " + line;
+            return (column > 0 ? location + " column " + column : location) + ": " + reason;
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package org.example.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * 本地的OpenAI兼容对话接口，用于离线压测和长时间运行测试
+ * 按请求内容返回固定格式的回复：批量分类返回与交易数相同的分类数组，单个分类返回一个分类名称，
+ * 支出预测和预算建议返回提示中要求的JSON。同一描述总是得到同一个分类，缓存的行为与真实接口一致。
+ * 延迟、错误率（500）和限流率（429，带Retry-After）可以在运行中调整。
+ * <p>
+ * 单独运行：java org.example.utils.StubChatServer --port=8089 --latency=200 --jitter=100 --error-rate=0.02
+ * --throttle-rate=0.01，然后以 -Dai.endpoint=http://127.0.0.1:8089/v1/chat/completions -Dai.apiKey=stub
+ * 启动程序；存根不检查密钥，但没有密钥时程序不会调用AI服务。
+ */
+public class StubChatServer {
+
+    private static final Pattern TRANSACTION_LINE = Pattern.compile("(?m)^\\d+\\. (.*) \\| Amount: .*$");
+    private static final Pattern SINGLE_TRANSACTION = Pattern.compile("^Transaction description: (.*), Amount: ");
+    private static final Pattern HISTORY_MONTH = Pattern.compile("(\\d{4}-\\d{2}): ¥([\\d.]+)");
+    private static final Pattern FORECAST_MONTHS = Pattern.compile("next (\\d+) months");
+    private static final Pattern SPENDING_LINE = Pattern.compile("(?m)^([^:\\n]+): ¥([\\d.]+)$");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicLong responseIds = new AtomicLong();
+    private volatile long latencyMillis;
+    private volatile long jitterMillis;
+    private volatile double errorRate;
+    private volatile double throttleRate;
+
+    /**
+     * @param port 监听的端口，0表示任选一个空闲端口
+     */
+    public StubChatServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        // 模拟的延迟在处理线程中等待，线程数决定能同时处理的请求数
+        AtomicInteger count = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(64, runnable -> {
+            Thread thread = new Thread(runnable, "stub-chat-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return 对话接口的地址，可以作为ai.endpoint使用
+     */
+    public String getEndpoint() {
+        return "http://127.0.0.1:" + getPort() + "/v1/chat/completions";
+    }
+
+    /**
+     * @return 收到的请求数，包括返回错误的请求
+     */
+    public int getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * 每个请求的延迟为 latency 加上 0 到 jitter 之间的随机值
+     */
+    public void setLatency(long latencyMillis, long jitterMillis) {
+        this.latencyMillis = Math.max(0, latencyMillis);
+        this.jitterMillis = Math.max(0, jitterMillis);
+    }
+
+    /**
+     * @param errorRate 返回500的请求比例，0到1
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * @param throttleRate 返回429的请求比例，0到1
+     */
+    public void setThrottleRate(double throttleRate) {
+        this.throttleRate = throttleRate;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            requests.incrementAndGet();
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, error("method not allowed"));
+                return;
+            }
+            if (!exchange.getRequestURI().getPath().endsWith("/chat/completions")) {
+                send(exchange, 404, error("not found"));
+                return;
+            }
+            String body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            sleep();
+
+            double roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < throttleRate) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, 429, error("rate limited"));
+            } else if (roll < throttleRate + errorRate) {
+                send(exchange, 500, error("stub server error"));
+            } else {
+                String reply = reply(body);
+                if (reply != null) {
+                    send(exchange, 200, reply);
+                } else {
+                    send(exchange, 400, error("invalid request"));
+                }
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void sleep() {
+        long delay = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String error(String message) {
+        JSONObject error = new JSONObject();
+        error.put("message", message);
+        JSONObject json = new JSONObject();
+        json.put("error", error);
+        return json.toJSONString();
+    }
+
+    /**
+     * 按最后一条用户消息生成一个对话回复
+     *
+     * @return 回复的JSON，请求格式错误时为null
+     */
+    @SuppressWarnings("unchecked")
+    private String reply(String body) {
+        String model = AiConfig.DEFAULT_MODEL;
+        String userContent = "";
+        try {
+            JSONObject request = (JSONObject) new JSONParser().parse(body);
+            if (request.get("model") != null) {
+                model = String.valueOf(request.get("model"));
+            }
+            for (Object item : (JSONArray) request.get("messages")) {
+                JSONObject message = (JSONObject) item;
+                if ("user".equals(message.get("role"))) {
+                    userContent = String.valueOf(message.get("content"));
+                }
+            }
+        } catch (ParseException | ClassCastException | NullPointerException e) {
+            return null;
+        }
+
+        String content = contentFor(userContent);
+        JSONObject message = new JSONObject();
+        message.put("role", "assistant");
+        message.put("content", content);
+        JSONObject choice = new JSONObject();
+        choice.put("index", 0);
+        choice.put("message", message);
+        choice.put("finish_reason", "stop");
+        JSONArray choices = new JSONArray();
+        choices.add(choice);
+
+        JSONObject usage = new JSONObject();
+        int promptTokens = DeepSeekCategoryService.estimateTokens(body);
+        int completionTokens = DeepSeekCategoryService.estimateTokens(content);
+        usage.put("prompt_tokens", promptTokens);
+        usage.put("completion_tokens", completionTokens);
+        usage.put("total_tokens", promptTokens + completionTokens);
+
+        JSONObject response = new JSONObject();
+        response.put("id", "stub-" + responseIds.incrementAndGet());
+        response.put("object", "chat.completion");
+        response.put("created", System.currentTimeMillis() / 1000);
+        response.put("model", model);
+        response.put("choices", choices);
+        response.put("usage", usage);
+        return response.toJSONString();
+    }
+
+    @SuppressWarnings("unchecked")
+    static String contentFor(String userContent) {
+        if (userContent.startsWith("Transactions:")) {
+            JSONArray categories = new JSONArray();
+            Matcher line = TRANSACTION_LINE.matcher(userContent);
+            while (line.find()) {
+                categories.add(categoryOf(line.group(1)));
+            }
+            return categories.toJSONString();
+        }
+        Matcher single = SINGLE_TRANSACTION.matcher(userContent);
+        if (single.find()) {
+            return categoryOf(single.group(1));
+        }
+        if (userContent.contains("\"predictions\"")) {
+            return forecast(userContent);
+        }
+        if (userContent.contains("\"recommendations\"")) {
+            return recommendations(userContent);
+        }
+        return "OK";
+    }
+
+    // 同一商户总是得到同一个分类
+    private static String categoryOf(String description) {
+        List<String> categories = DeepSeekCategoryService.getPredefinedCategories();
+        int hash = ClassificationCache.normalizeMerchant(description).hashCode();
+        return categories.get(Math.floorMod(hash, categories.size()));
+    }
+
+    // 之后每个月的预测都是历史月份的平均值
+    @SuppressWarnings("unchecked")
+    private static String forecast(String prompt) {
+        double total = 0;
+        int count = 0;
+        YearMonth last = YearMonth.now();
+        Matcher history = HISTORY_MONTH.matcher(prompt);
+        while (history.find()) {
+            total += Double.parseDouble(history.group(2));
+            count++;
+            YearMonth month = YearMonth.parse(history.group(1));
+            last = count == 1 || month.isAfter(last) ? month : last;
+        }
+        Matcher months = FORECAST_MONTHS.matcher(prompt);
+        int horizon = months.find() ? Integer.parseInt(months.group(1)) : 3;
+
+        JSONObject predictions = new JSONObject();
+        double average = count > 0 ? total / count : 0;
+        for (int i = 1; i <= horizon; i++) {
+            predictions.put(last.plusMonths(i).toString(), Math.round(average * 100) / 100.0);
+        }
+        JSONObject json = new JSONObject();
+        json.put("predictions", predictions);
+        json.put("explanation", "Stub forecast: average of " + count + " historical months.");
+        return json.toJSONString();
+    }
+
+    // 每个分类建议为当前支出的九成
+    @SuppressWarnings("unchecked")
+    private static String recommendations(String prompt) {
+        JSONObject recommendations = new JSONObject();
+        Matcher line = SPENDING_LINE.matcher(prompt);
+        while (line.find()) {
+            String category = line.group(1).trim();
+            if (!category.startsWith("Total")) {
+                recommendations.put(category, Math.round(Double.parseDouble(line.group(2)) * 90) / 100.0);
+            }
+        }
+        JSONObject json = new JSONObject();
+        json.put("recommendations", recommendations);
+        json.put("analysis", "Stub recommendation: 90% of current spending in each category.");
+        return json.toJSONString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = 8089;
+        long latency = 0;
+        long jitter = 0;
+        double errorRate = 0;
+        double throttleRate = 0;
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String name = eq > 0 ? arg.substring(0, eq) : arg;
+            String value = eq > 0 ? arg.substring(eq + 1) : "";
+            switch (name) {
+                case "--port":
+                    port = Integer.parseInt(value);
+                    break;
+                case "--latency":
+                    latency = Long.parseLong(value);
+                    break;
+                case "--jitter":
+                    jitter = Long.parseLong(value);
+                    break;
+                case "--error-rate":
+                    errorRate = Double.parseDouble(value);
+                    break;
+                case "--throttle-rate":
+                    throttleRate = Double.parseDouble(value);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + arg);
+                    System.err.println("Options: --port=N --latency=MS --jitter=MS --error-rate=R --throttle-rate=R");
+                    System.exit(2);
+            }
+        }
+
+        StubChatServer stub = new StubChatServer(port);
+        stub.setLatency(latency, jitter);
+        stub.setErrorRate(errorRate);
+        stub.setThrottleRate(throttleRate);
+        stub.start();
+        System.out.println("Stub chat server listening on " + stub.getEndpoint());
+        System.out.println("Start the app with -Dai.endpoint=" + stub.getEndpoint() + " -Dai.apiKey=stub");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println("Stub chat server handled " + stub.getRequestCount() + " requests");
+            stub.stop();
+        }));
+    }
+}
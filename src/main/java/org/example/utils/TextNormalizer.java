@@ -0,0 +1,43 @@
+package org.example.utils;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * 文本规范化工具
+ * 统一全角/半角、大小写和空白字符，使同一商户的不同写法得到相同的结果
+ */
+public class TextNormalizer {
+
+    private TextNormalizer() {
+    }
+
+    /**
+     * 规范化交易描述：全角转半角、转小写、合并连续空白并去除首尾空白
+     *
+     * @param description 原始描述
+     * @return 规范化后的描述，null返回空字符串
+     */
+    public static String normalizeDescription(String description) {
+        if (description == null || description.isEmpty()) {
+            return "";
+        }
+
+        String text = Normalizer.normalize(description, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                pendingSpace = sb.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                sb.append(' ');
+                pendingSpace = false;
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
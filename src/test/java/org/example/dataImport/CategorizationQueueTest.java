@@ -0,0 +1,62 @@
+package org.example.dataImport;
+
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CategorizationQueueTest {
+
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.createTempFile("categorize_queue", ".txt");
+        Files.delete(file);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    void testQueueSurvivesReopen() throws IOException {
+        CategorizationQueue queue = new CategorizationQueue(file.toFile());
+        queue.enqueue(List.of(3, 1, 2, 3));
+        queue.complete(List.of(1));
+        assertEquals(List.of(3, 2), queue.peek(10));
+
+        CategorizationQueue reopened = new CategorizationQueue(file.toFile());
+        assertEquals(List.of(3, 2), reopened.peek(10));
+        assertEquals(List.of(3), reopened.peek(1));
+    }
+
+    @Test
+    void testPartialLastLineIgnored() throws IOException {
+        Files.writeString(file, "+7\n+8\n-7\n+");
+        CategorizationQueue queue = new CategorizationQueue(file.toFile());
+        assertEquals(List.of(8), queue.peek(10));
+    }
+
+    @Test
+    void testJournalCompactedWhenMostlyDone() throws IOException {
+        CategorizationQueue queue = new CategorizationQueue(file.toFile());
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            ids.add(i);
+        }
+        queue.enqueue(ids);
+        queue.complete(ids.subList(0, 999));
+
+        assertEquals(1, queue.size());
+        assertEquals(List.of("+999"), Files.readAllLines(file));
+        assertEquals(List.of(999), new CategorizationQueue(file.toFile()).peek(10));
+    }
+}
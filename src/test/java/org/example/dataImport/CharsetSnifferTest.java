@@ -0,0 +1,66 @@
+package org.example.dataImport;
+
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CharsetSnifferTest {
+
+    private static final Charset GB18030 = Charset.forName("GB18030");
+
+    @Test
+    void testAlipayStatementDetectedAsGb18030() throws IOException {
+        try (RowSource source = CsvRowSource.open(new FileInputStream("alipay_record_20250319_171441.csv"), 0)) {
+            assertEquals("GB18030", source.getEncoding());
+            String[] row;
+            boolean sawHeader = false;
+            while ((row = source.next()) != null) {
+                sawHeader |= "交易时间".equals(row[0]);
+            }
+            assertTrue(sawHeader);
+        }
+    }
+
+    @Test
+    void testUtf8BomIsSkipped() throws IOException {
+        byte[] bom = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(bom);
+        out.write("日期,金额\n".getBytes(StandardCharsets.UTF_8));
+
+        try (RowSource source = CsvRowSource.open(new ByteArrayInputStream(out.toByteArray()), 0)) {
+            assertEquals("UTF-8", source.getEncoding());
+            assertEquals("日期", source.next()[0]);
+        }
+    }
+
+    @Test
+    void testFallsBackPerLineWithoutRestarting() throws IOException {
+        // 开头的一整块都是ASCII，GBK内容出现在后面
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StringBuilder ascii = new StringBuilder();
+        while (ascii.length() < CharsetSniffer.SNIFF_BYTES) {
+            ascii.append("2025-03-01,-1.00,coffee\n");
+        }
+        out.write(ascii.toString().getBytes(StandardCharsets.US_ASCII));
+        out.write("2025-03-02,-2.00,超市购物\n".getBytes(GB18030));
+
+        try (RowSource source = CsvRowSource.open(new ByteArrayInputStream(out.toByteArray()), 0)) {
+            assertEquals("UTF-8", source.getEncoding());
+            String[] row;
+            String[] last = null;
+            while ((row = source.next()) != null) {
+                last = row;
+            }
+            assertEquals("超市购物", last[2]);
+            assertEquals("GB18030", source.getEncoding());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.example.dataImport;
+
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataImportModelTest {
+
+    private static final String USER = "importmodeluser";
+    private Path archive;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        archive = Files.createTempFile("statements", ".zip");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(archive);
+        for (String suffix : new String[] { "_transactions.csv", "_fingerprints.idx", "_nextId.txt" }) {
+            Files.deleteIfExists(Path.of(USER + suffix));
+        }
+    }
+
+    private static final String STATEMENT = "交易时间,金额\n2025-03-01,-12.50\n";
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(content);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void writeZip(Path path, String name, byte[] content) throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(path.toFile()))) {
+            zip.putNextEntry(new ZipEntry(name));
+            zip.write(content);
+            zip.closeEntry();
+        }
+    }
+
+    @Test
+    void testArchiveWithoutStatementsFailsCleanly() throws IOException {
+        writeZip(archive, "readme.txt", "not a statement".getBytes(StandardCharsets.UTF_8));
+        File file = archive.toFile();
+
+        DataImportModel.ImportResult result = new DataImportModel(USER).importFiles(List.of(file), null);
+
+        assertFalse(result.isSuccess());
+        assertNotNull(result.getErrorMessage());
+    }
+
+    @Test
+    void testArchivedCsvAndGzEntriesReadBack() throws IOException {
+        byte[] content = STATEMENT.getBytes(StandardCharsets.UTF_8);
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(archive.toFile()))) {
+            zip.putNextEntry(new ZipEntry("march.csv"));
+            zip.write(content);
+            zip.putNextEntry(new ZipEntry("april.csv.gz"));
+            zip.write(gzip(content));
+            zip.closeEntry();
+        }
+
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            for (String name : new String[] { "march.csv", "april.csv.gz" }) {
+                try (RowSource source = DataImportModel.openEntry(zip, zip.getEntry(name))) {
+                    assertArrayEquals(new String[] { "交易时间", "金额" }, source.next(), name);
+                    assertArrayEquals(new String[] { "2025-03-01", "-12.50" }, source.next(), name);
+                    assertNull(source.next(), name);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testGzipFileReadBack() throws IOException {
+        Path file = Files.createTempFile("statement", ".csv.gz");
+        try {
+            Files.write(file, gzip(STATEMENT.getBytes(StandardCharsets.UTF_8)));
+            try (RowSource source = DataImportModel.openRows(file.toFile(), 0)) {
+                assertArrayEquals(new String[] { "交易时间", "金额" }, source.next());
+                assertArrayEquals(new String[] { "2025-03-01", "-12.50" }, source.next());
+                assertNull(source.next());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
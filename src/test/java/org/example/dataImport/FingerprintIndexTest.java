@@ -0,0 +1,87 @@
+package org.example.dataImport;
+
+import org.example.list.Transaction;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FingerprintIndexTest {
+
+    private static final String USER = "fingerprintuser";
+    private final Path storeFile = Path.of(USER + "_transactions.csv");
+    private final Path indexFile = Path.of(USER + "_fingerprints.idx");
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.writeString(storeFile, "id,username,source,date,amount,category,description\n"
+                + "1," + USER + ",alipay,2025-03-01,-12.50,Uncategorized,Coffee Shop\n");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(storeFile);
+        Files.deleteIfExists(indexFile);
+    }
+
+    private Transaction transaction(String description) {
+        return new Transaction(0, USER, "alipay", LocalDate.of(2025, 3, 1), -12.5, "Uncategorized", description);
+    }
+
+    @Test
+    void testSkipsRowsAlreadyInUserFile() {
+        FingerprintIndex index = FingerprintIndex.open(USER);
+        FingerprintIndex.Session session = index.newSession();
+
+        // 描述的大小写和全角空白不同，仍视为同一条交易
+        assertFalse(session.accept(transaction("  COFFEE　shop ")));
+        assertTrue(session.accept(transaction("Tea House")));
+        assertEquals(1, session.getDuplicates());
+    }
+
+    @Test
+    void testRepeatedRowsWithinOneFileAreKept() {
+        FingerprintIndex index = FingerprintIndex.open(USER);
+        FingerprintIndex.Session session = index.newSession();
+
+        // 文件中已有一条，本次导入的第二条是新的消费
+        assertFalse(session.accept(transaction("Coffee Shop")));
+        assertTrue(session.accept(transaction("Coffee Shop")));
+        index.endSession(session);
+
+        // 再次导入同一账单时两条都是重复
+        FingerprintIndex.Session again = index.newSession();
+        assertFalse(again.accept(transaction("Coffee Shop")));
+        assertFalse(again.accept(transaction("Coffee Shop")));
+    }
+
+    @Test
+    void testOverlappingFilesInOneBatchImportSharedRowsOnce() {
+        FingerprintIndex index = FingerprintIndex.open(USER);
+        FingerprintIndex.Batch batch = index.newBatch();
+        FingerprintIndex.Session first = batch.newSession();
+        FingerprintIndex.Session second = batch.newSession();
+
+        // 两个账单都包含同一天的两笔奶茶，交错导入后只保留两条
+        assertTrue(first.accept(transaction("Tea House")));
+        assertFalse(second.accept(transaction("Tea House")));
+        assertTrue(second.accept(transaction("Tea House")));
+        assertFalse(first.accept(transaction("Tea House")));
+        assertEquals(1, first.getDuplicates());
+        assertEquals(1, second.getDuplicates());
+    }
+
+    @Test
+    void testIndexRebuiltWhenUserFileChanges() throws IOException {
+        FingerprintIndex.open(USER);
+        assertTrue(Files.exists(indexFile));
+
+        Files.writeString(storeFile, "id,username,source,date,amount,category,description\n");
+        FingerprintIndex.Session session = FingerprintIndex.open(USER).newSession();
+        assertTrue(session.accept(transaction("Coffee Shop")));
+    }
+}
@@ -0,0 +1,56 @@
+package org.example.dataImport;
+
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportCheckpointTest {
+
+    private static final String USER = "checkpointuser";
+    private Path source;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        source = Files.createTempFile("statement", ".csv");
+        Files.writeString(source, "header\nrow1\nrow2\n");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        ImportCheckpoint.open(USER, source.toFile()).complete();
+        Files.deleteIfExists(source);
+    }
+
+    @Test
+    void testResumeFromRecordedProgress() throws IOException {
+        ImportCheckpoint first = ImportCheckpoint.open(USER, source.toFile());
+        assertFalse(first.isResumed());
+        first.recordParsed(12, 3, 41, 2048, 2);
+        first.startCategorizing();
+
+        ImportCheckpoint resumed = ImportCheckpoint.open(USER, source.toFile());
+        assertTrue(resumed.isResumed());
+        assertEquals(ImportCheckpoint.Phase.CATEGORIZING, resumed.getPhase());
+        assertEquals(12, resumed.getByteOffset());
+        assertEquals(3, resumed.getLineNumber());
+        assertEquals(41, resumed.getLastId());
+        assertEquals(2048, resumed.getStoreLength());
+        assertEquals(2, resumed.getRowsImported());
+    }
+
+    @Test
+    void testModifiedSourceStartsOver() throws IOException {
+        ImportCheckpoint.open(USER, source.toFile()).recordParsed(12, 3, 41, 2048, 2);
+
+        Files.writeString(source, "header\nrow1\nrow2\nrow3\n");
+        File file = source.toFile();
+        file.setLastModified(file.lastModified() + 5000);
+
+        assertFalse(ImportCheckpoint.open(USER, file).isResumed());
+    }
+}
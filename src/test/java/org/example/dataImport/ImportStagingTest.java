@@ -0,0 +1,97 @@
+package org.example.dataImport;
+
+import org.example.list.Transaction;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportStagingTest {
+
+    private ImportStaging staging;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // 阈值设为10，第11条开始写入临时文件
+        staging = new ImportStaging(10);
+        for (int i = 1; i <= 1000; i++) {
+            staging.add(row(i));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        staging.close();
+    }
+
+    @Test
+    void testSpillsBeyondThreshold() {
+        assertTrue(staging.isSpilled());
+        assertEquals(1000, staging.size());
+    }
+
+    @Test
+    void testPageAcrossMemoryAndRunFile() throws IOException {
+        List<Transaction> page = staging.page(5, 10);
+        assertEquals(10, page.size());
+        assertEquals(6, page.get(0).getId());
+        assertEquals(15, page.get(9).getId());
+
+        List<Transaction> tail = staging.page(995, 100);
+        assertEquals(5, tail.size());
+        assertEquals(1000, tail.get(4).getId());
+        assertEquals("desc 1000", tail.get(4).getDescription());
+    }
+
+    @Test
+    void testPendingRowsKeepEditsAndRemovals() throws IOException {
+        Transaction spilled = staging.page(500, 1).get(0);
+        spilled.setCategory("Travel");
+        staging.remove(staging.page(600, 1));
+        staging.remove(staging.page(0, 1));
+
+        List<Transaction> written = new ArrayList<>();
+        staging.forEachPending(written::add);
+
+        assertEquals(998, written.size());
+        assertEquals(2, written.get(0).getId());
+        assertTrue(written.stream().noneMatch(t -> t.getId() == 601));
+        assertEquals("Travel", written.stream().filter(t -> t.getId() == 501).findFirst().orElseThrow().getCategory());
+    }
+
+    @Test
+    void testCommittedRowsAreNotWrittenAgain() throws IOException {
+        staging.markCommitted();
+        assertFalse(staging.hasPending());
+
+        staging.add(row(1001));
+        List<Transaction> written = new ArrayList<>();
+        staging.forEachPending(written::add);
+
+        assertEquals(1, written.size());
+        assertEquals(1001, written.get(0).getId());
+    }
+
+    @Test
+    void testTruncateDropsCancelledRows() throws IOException {
+        // 截断到溢出文件中间，之后继续追加
+        staging.truncate(700);
+        assertEquals(700, staging.size());
+        staging.add(row(2000));
+        assertEquals(2000, staging.page(700, 1).get(0).getId());
+        assertEquals(700, staging.page(699, 1).get(0).getId());
+
+        staging.truncate(5);
+        assertFalse(staging.isSpilled());
+        assertEquals(5, staging.page(0, 100).size());
+    }
+
+    private Transaction row(int id) {
+        return new Transaction(id, "staginguser", "alipay", LocalDate.of(2025, 3, 1).plusDays(id % 28),
+                -id, "Uncategorized", "desc " + id);
+    }
+}
@@ -0,0 +1,131 @@
+package org.example.dataImport;
+
+import org.example.list.IdAllocator;
+import org.example.list.Transaction;
+import org.example.utils.FieldParsers;
+import org.example.utils.ParseErrorReport;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatementImportersTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ImportContext context;
+
+    @BeforeEach
+    void setUp() {
+        context = new ImportContext("testuser", IdAllocator.open(tempDir.resolve("testuser_nextId.txt").toFile()),
+                "", null);
+    }
+
+    @Test
+    void testImportersDiscoveredThroughServiceLoader() {
+        List<String> names = new ArrayList<>();
+        for (StatementImporter importer : StatementImporters.getImporters()) {
+            names.add(importer.getName());
+        }
+        assertEquals(List.of("alipay", "wechat", "regular"), names);
+    }
+
+    @Test
+    void testAlipayStatementDetectedAndParsedInOnePass() throws IOException {
+        File statement = new File("alipay_record_20250319_171441.csv");
+        try (RowSource source = CsvRowSource.open(new FileInputStream(statement), 0)) {
+            List<String[]> head = new ArrayList<>();
+            String[] row;
+            while (head.size() < 32 && (row = source.next()) != null) {
+                head.add(row);
+            }
+            StatementImporter importer = StatementImporters.select(head);
+            assertEquals("alipay", importer.getName());
+
+            // 表头在账单说明之后，之前的行全部跳过
+            int headerIndex = 0;
+            while (!importer.isHeader(head.get(headerIndex))) {
+                headerIndex++;
+            }
+            assertEquals("交易时间", head.get(headerIndex)[0]);
+
+            StatementImporter.RowParser parser = importer.newParser(head.get(headerIndex), context);
+            int parsed = 0;
+            for (String[] data : head.subList(headerIndex + 1, head.size())) {
+                parsed += parser.parse(data) != null ? 1 : 0;
+            }
+            while ((row = source.next()) != null) {
+                parsed += parser.parse(row) != null ? 1 : 0;
+            }
+            assertEquals(41, parsed);
+        }
+    }
+
+    @Test
+    void testRegularImporterMapsColumnsByHeader() {
+        List<String[]> head = List.of(
+                CsvRowSource.parseLine("ID,User,Source,Date,Amount,Category,Description"),
+                CsvRowSource.parseLine("1,testuser,manual,2025-04-14,-200,Uncategorized,Grocery Shopping"));
+        StatementImporter importer = StatementImporters.select(head);
+        assertEquals("regular", importer.getName());
+
+        Transaction transaction = importer.newParser(head.get(0), context).parse(head.get(1));
+        assertEquals("manual", transaction.getSource());
+        assertEquals(LocalDate.of(2025, 4, 14), transaction.getDate());
+        assertEquals(-200, transaction.getAmount(), 0.001);
+        assertEquals("Grocery Shopping", transaction.getDescription());
+    }
+
+    @Test
+    void testMalformedRowsGoToErrorReportAndRejectFile() throws IOException {
+        File rejects = File.createTempFile("statement", "_rejects.csv");
+        try {
+            ParseErrorReport errors = new ParseErrorReport(1, rejects);
+            ImportContext reporting = new ImportContext("testuser",
+                    IdAllocator.open(tempDir.resolve("reporting_nextId.txt").toFile()), "bad.csv", errors);
+            String[] header = CsvRowSource.parseLine("User,Source,Date,Amount,Category,Description");
+            StatementImporter.RowParser parser = new RegularImporter().newParser(header, reporting);
+
+            String[] badAmount = CsvRowSource.parseLine("testuser,manual,2025-04-14,abc,Food,\"Lunch, team\"");
+            reporting.startRow(2, badAmount);
+            assertNull(parser.parse(badAmount));
+            String[] badDate = CsvRowSource.parseLine("testuser,manual,2025-02-30,-1,Food,Coffee");
+            reporting.startRow(3, badDate);
+            assertNull(parser.parse(badDate));
+            errors.close();
+
+            // 内存中只保留第一条，拒绝文件包含所有出错的原始行
+            assertEquals(2, errors.getErrorCount());
+            assertEquals(1, errors.getErrors().size());
+            assertEquals(2, errors.getErrors().get(0).getLine());
+            assertEquals(4, errors.getErrors().get(0).getColumn());
+            List<String> lines = Files.readAllLines(rejects.toPath(), StandardCharsets.UTF_8);
+            assertEquals(3, lines.size());
+            assertEquals("bad.csv,2,4,invalid amount,testuser,manual,2025-04-14,abc,Food,\"Lunch, team\"", lines.get(1));
+            assertTrue(lines.get(2).startsWith("bad.csv,3,3,invalid date,"));
+        } finally {
+            rejects.delete();
+        }
+    }
+
+    @Test
+    void testFieldParsersReturnSentinelsInsteadOfThrowing() {
+        assertEquals(-1234.5, FieldParsers.parseAmount(" ¥-1,234.50 "), 0.001);
+        assertTrue(Double.isNaN(FieldParsers.parseAmount("12元")));
+        assertTrue(Double.isNaN(FieldParsers.parseAmount("-")));
+        assertEquals(LocalDate.of(2024, 2, 29), FieldParsers.parseDate("2024-02-29 08:15:00"));
+        assertNull(FieldParsers.parseDate("2025-13-01"));
+        assertNull(FieldParsers.parseDate("2025/03/01"));
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.dataImport;
+
+import org.junit.jupiter.api.*;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class XlsxRowSourceTest {
+
+    private Path workbook;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        workbook = Files.createTempFile("statement", ".xlsx");
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(workbook.toFile()))) {
+            put(zip, "xl/workbook.xml", "<workbook xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">"
+                    + "<sheets><sheet name=\"账单\" sheetId=\"1\" r:id=\"rId1\"/></sheets></workbook>");
+            put(zip, "xl/_rels/workbook.xml.rels", "<Relationships>"
+                    + "<Relationship Id=\"rId1\" Target=\"worksheets/sheet1.xml\"/></Relationships>");
+            put(zip, "xl/sharedStrings.xml", "<sst><si><t>交易时间</t></si><si><t>商品</t></si>"
+                    + "<si><r><t>超市</t></r><r><t>购物</t></r></si></sst>");
+            put(zip, "xl/styles.xml", "<styleSheet><cellXfs><xf numFmtId=\"0\"/><xf numFmtId=\"22\"/></cellXfs></styleSheet>");
+            put(zip, "xl/worksheets/sheet1.xml", "<worksheet><sheetData>"
+                    + "<row r=\"1\"><c r=\"A1\" t=\"s\"><v>0</v></c><c r=\"B1\" t=\"s\"><v>1</v></c></row>"
+                    + "<row r=\"2\"><c r=\"A2\" s=\"1\"><v>45733.5</v></c><c r=\"B2\" t=\"s\"><v>2</v></c>"
+                    + "<c r=\"D2\"><v>-4.08</v></c></row>"
+                    + "<row r=\"3\"><c r=\"A3\" s=\"1\"><v>45734</v></c><c r=\"B3\" t=\"inlineStr\"><is><t>咖啡</t></is></c></row>"
+                    + "</sheetData></worksheet>");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(workbook);
+    }
+
+    private void put(ZipOutputStream zip, String name, String xml) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(xml.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    @Test
+    void testReadsCellsOfFirstSheet() throws IOException {
+        try (XlsxRowSource source = XlsxRowSource.open(workbook.toFile(), 0)) {
+            assertArrayEquals(new String[] { "交易时间", "商品" }, source.next());
+            // 空单元格补齐为空字符串，日期样式的数字转为日期时间
+            assertArrayEquals(new String[] { "2025-03-17 12:00:00", "超市购物", "", "-4.08" }, source.next());
+            assertArrayEquals(new String[] { "2025-03-18", "咖啡" }, source.next());
+            assertNull(source.next());
+            assertEquals(3, source.position());
+        }
+    }
+
+    @Test
+    void testResumeSkipsRowsAlreadyRead() throws IOException {
+        try (XlsxRowSource source = XlsxRowSource.open(workbook.toFile(), 2)) {
+            assertEquals("咖啡", source.next()[1]);
+        }
+    }
+
+    @Test
+    void testOpensWorkbookFromStream() throws IOException {
+        // 压缩包中的工作簿以流的形式读取
+        try (XlsxRowSource source = XlsxRowSource.open(Files.newInputStream(workbook))) {
+            assertArrayEquals(new String[] { "交易时间", "商品" }, source.next());
+            assertEquals("咖啡", source.next() != null ? source.next()[1] : null);
+        }
+    }
+
+    @Test
+    void testMalformedCellsKeepRawValue() throws IOException {
+        Path broken = Files.createTempFile("broken", ".xlsx");
+        try {
+            try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(broken.toFile()))) {
+                put(zip, "xl/workbook.xml", "<workbook><sheets><sheet name=\"s\" sheetId=\"1\"/></sheets></workbook>");
+                put(zip, "xl/sharedStrings.xml", "<sst><si><t>交易时间</t></si></sst>");
+                put(zip, "xl/styles.xml", "<styleSheet><cellXfs><xf numFmtId=\"0\"/><xf numFmtId=\"22\"/></cellXfs></styleSheet>");
+                put(zip, "xl/worksheets/sheet1.xml", "<worksheet><sheetData>"
+                        + "<row r=\"1\"><c r=\"A1\" t=\"s\"><v>7</v></c><c r=\"B1\" t=\"s\"><v>x</v></c></row>"
+                        + "<row r=\"2\"><c r=\"A2\" s=\"q\"><v>45733</v></c><c r=\"B2\" s=\"1\"><v>n/a</v></c></row>"
+                        + "</sheetData></worksheet>");
+            }
+            // 无效的共享字符串、样式和日期保留原始值，由解析器拒绝所在行，不中断导入
+            try (XlsxRowSource source = XlsxRowSource.open(broken.toFile(), 0)) {
+                assertArrayEquals(new String[] { "7", "x" }, source.next());
+                assertArrayEquals(new String[] { "45733", "n/a" }, source.next());
+                assertNull(source.next());
+            }
+        } finally {
+            Files.deleteIfExists(broken);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.list;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdAllocatorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private String read(File file) throws Exception {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testOnlyHighWaterMarkIsPersisted() throws Exception {
+        File file = tempDir.resolve("alice_nextId.txt").toFile();
+        IdAllocator ids = IdAllocator.load(file, 10);
+
+        assertEquals(1, ids.next());
+        assertEquals("11", read(file));
+        for (int i = 2; i <= 10; i++) {
+            assertEquals(i, ids.next());
+        }
+        // 块内分配不写文件
+        assertEquals("11", read(file));
+        assertEquals(11, ids.next());
+        assertEquals("21", read(file));
+
+        // 重启后跳过上次未用完的ID
+        IdAllocator restarted = IdAllocator.load(file, 10);
+        assertEquals(21, restarted.next());
+
+        restarted.advancePast(100);
+        assertEquals(101, restarted.next());
+        assertEquals("111", read(file));
+    }
+
+    @Test
+    void testStartsAfterStoreWhenIdFileIsBehind() throws Exception {
+        File file = tempDir.resolve("carol_nextId.txt").toFile();
+        File store = tempDir.resolve("carol_transactions.csv").toFile();
+        Files.writeString(file.toPath(), "5");
+        Files.writeString(store.toPath(), TransactionSchema.STORE_HEADER + "\n"
+                + "41,carol,alipay,2025-03-01,-12.50,Food,Coffee\n");
+
+        assertEquals(42, IdAllocator.open(file, store).next());
+    }
+
+    @Test
+    void testInvalidIdFileFailsInsteadOfRestarting() throws Exception {
+        File file = tempDir.resolve("dave_nextId.txt").toFile();
+        Files.writeString(file.toPath(), "12345678901");
+        assertThrows(IllegalStateException.class, () -> IdAllocator.load(file, 10));
+
+        Files.writeString(file.toPath(), "abc");
+        assertThrows(IllegalStateException.class, () -> IdAllocator.load(file, 10));
+    }
+
+    @Test
+    void testConcurrentAllocationIsUnique() throws Exception {
+        IdAllocator ids = IdAllocator.load(tempDir.resolve("bob_nextId.txt").toFile(), 7);
+        Set<Integer> seen = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    seen.add(ids.next());
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(8000, seen.size());
+        assertTrue(IdAllocator.load(tempDir.resolve("bob_nextId.txt").toFile(), 7).next() > 8000);
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.list;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionCategoryWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testOnlyUncategorizedRowsAreUpdated() throws Exception {
+        Path path = tempDir.resolve("carol_transactions.csv");
+        Files.write(path, Arrays.asList(TransactionSchema.STORE_HEADER,
+                "1,carol,manual,2025-04-14,-10.00,Uncategorized,Tea",
+                "2,carol,manual,2025-04-15,-20.00,Shopping,Coffee beans",
+                "3,carol,manual,2025-04-16,-30.00,Uncategorized,Taxi"), StandardCharsets.UTF_8);
+        File file = path.toFile();
+
+        int updated = TransactionCategoryWriter.writeCategories(file,
+                Map.of(1, "Food & Dining", 2, "Food & Dining", 9, "Travel"));
+
+        assertEquals(1, updated);
+        assertEquals(Arrays.asList(TransactionSchema.STORE_HEADER,
+                "1,carol,manual,2025-04-14,-10.00,Food & Dining,Tea",
+                "2,carol,manual,2025-04-15,-20.00,Shopping,Coffee beans",
+                "3,carol,manual,2025-04-16,-30.00,Uncategorized,Taxi"),
+                Files.readAllLines(path, StandardCharsets.UTF_8));
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+}
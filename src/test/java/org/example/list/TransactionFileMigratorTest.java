@@ -0,0 +1,83 @@
+package org.example.list;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionFileMigratorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File write(String name, String... lines) throws Exception {
+        Path path = tempDir.resolve(name);
+        Files.write(path, Arrays.asList(lines), StandardCharsets.UTF_8);
+        return path.toFile();
+    }
+
+    @Test
+    void testLegacyFileWithoutIdsIsUpgraded() throws Exception {
+        File file = write("alice_transactions.csv",
+                "User,Source,Date,Amount,Category,Description",
+                "alice,manual,2025-04-14,-200,Food,Lunch",
+                ",manual,2025-04-15,50,Salary,Bonus");
+        Files.write(tempDir.resolve("alice_nextId.txt"), "1".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(0, TransactionFileMigrator.versionOf("User,Source,Date,Amount,Category,Description"));
+        assertTrue(TransactionFileMigrator.needsMigration(file));
+        assertTrue(TransactionFileMigrator.migrate(file));
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(Arrays.asList(TransactionSchema.STORE_HEADER,
+                "1,alice,manual,2025-04-14,-200,Food,Lunch",
+                "2,alice,manual,2025-04-15,50,Salary,Bonus"), lines);
+        assertEquals("3", new String(Files.readAllBytes(tempDir.resolve("alice_nextId.txt")), StandardCharsets.UTF_8));
+
+        // 已是当前格式时不再改写
+        assertFalse(TransactionFileMigrator.needsMigration(file));
+        assertFalse(TransactionFileMigrator.migrate(file));
+    }
+
+    @Test
+    void testIdHeaderVariantKeepsIdsAndAssignsMissing() throws Exception {
+        File file = write("bob_transactions.csv",
+                "Id,User,Date,Amount,Source,Category,Description",
+                "5,bob,2025-04-14,-10,manual,Food,Tea",
+                ",bob,2025-04-15,-20,manual,Food,Coffee");
+
+        assertEquals(1, TransactionFileMigrator.versionOf("Id,User,Date,Amount,Source,Category,Description"));
+        TransactionFileMigrator.migrateInBackground(file).get();
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(Arrays.asList(TransactionSchema.STORE_HEADER,
+                "5,bob,manual,2025-04-14,-10,Food,Tea",
+                "6,bob,manual,2025-04-15,-20,Food,Coffee"), lines);
+        assertFalse(new File(file.getPath() + ".migrating").exists());
+    }
+
+    @Test
+    void testUnrecognisedFileNameKeepsRowUsers() throws Exception {
+        File file = write("export.csv",
+                "User,Source,Date,Amount,Category,Description",
+                "carol,manual,2025-04-14,-200,Food,Lunch",
+                ",manual,2025-04-15,50,Salary,Bonus");
+
+        assertTrue(TransactionFileMigrator.migrate(file));
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(Arrays.asList(TransactionSchema.STORE_HEADER,
+                "1,carol,manual,2025-04-14,-200,Food,Lunch",
+                "2,,manual,2025-04-15,50,Salary,Bonus"), lines);
+        // 无法确定用户时不写ID文件
+        assertFalse(Files.exists(tempDir.resolve("_nextId.txt")));
+        assertFalse(Files.exists(tempDir.resolve("export.csv_nextId.txt")));
+    }
+}
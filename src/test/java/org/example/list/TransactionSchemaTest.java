@@ -0,0 +1,44 @@
+package org.example.list;
+
+import org.junit.jupiter.api.*;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionSchemaTest {
+
+    @Test
+    void testHeaderVariantsResolveToSameFields() {
+        TransactionSchema store = TransactionSchema.fromHeader("id,username,source,date,amount,category,description");
+        TransactionSchema legacy = TransactionSchema.fromHeader("User,Source,Date,Amount,Category,Description");
+
+        String[] storeRow = store.split("7,alice,manual,2025-04-14,-200,Food,Lunch");
+        String[] legacyRow = legacy.split("alice,manual,2025-04-14,-200,Food,Lunch");
+
+        assertEquals(7, store.id(storeRow));
+        assertEquals(-1, legacy.id(legacyRow));
+        for (String[] row : new String[][] { storeRow, legacyRow }) {
+            TransactionSchema schema = row == storeRow ? store : legacy;
+            assertTrue(schema.belongsTo(row, "alice"));
+            assertEquals(LocalDate.of(2025, 4, 14), schema.date(row));
+            assertEquals(-200, schema.amount(row), 0.001);
+            assertEquals("Food", schema.get(row, TransactionSchema.Field.CATEGORY));
+        }
+    }
+
+    @Test
+    void testMissingOptionalColumnsAndMalformedRows() {
+        // 列顺序不同、没有描述列，末尾的空列保留
+        TransactionSchema schema = TransactionSchema.fromHeader("Date,Amount,Category");
+        String[] row = schema.split("2025-04-14,12.5,");
+        assertTrue(schema.accepts(row));
+        assertTrue(schema.belongsTo(row, "anyone"));
+        assertEquals("", schema.get(row, TransactionSchema.Field.CATEGORY));
+        assertEquals("", schema.get(row, TransactionSchema.Field.DESCRIPTION));
+
+        assertFalse(schema.accepts(schema.split("2025-04-14")));
+        assertNull(schema.toTransaction(schema.split("2025-04-31,1,Food")));
+        assertNull(schema.toTransaction(schema.split("2025-04-14,abc,Food")));
+    }
+}
@@ -0,0 +1,52 @@
+package org.example.utils;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void testAdditiveIncreaseMultiplicativeDecrease() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 8);
+
+        // 大约每轮成功（上限个请求）上限加1
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire();
+            limiter.release(false);
+        }
+        assertEquals(5, limiter.getLimit());
+
+        limiter.acquire();
+        limiter.release(true);
+        assertEquals(2, limiter.getLimit());
+        limiter.acquire();
+        limiter.release(true);
+        limiter.acquire();
+        limiter.release(true);
+        assertEquals(1, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void testAcquireWaitsForFreeSlot() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1);
+        limiter.acquire();
+
+        Thread waiter = new Thread(() -> {
+            try {
+                limiter.acquire();
+            } catch (Exception e) {
+                fail(e);
+            }
+        });
+        waiter.start();
+        waiter.join(200);
+        assertTrue(waiter.isAlive());
+
+        limiter.cancel();
+        waiter.join(2000);
+        assertFalse(waiter.isAlive());
+        assertEquals(1, limiter.getInFlight());
+    }
+}
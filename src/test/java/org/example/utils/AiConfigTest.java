@@ -0,0 +1,39 @@
+package org.example.utils;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AiConfigTest {
+
+    @Test
+    void testSystemPropertyOverridesEnvironmentAndFile() {
+        Properties file = new Properties();
+        file.setProperty("endpoint", "http://file.example/v1/chat/completions");
+        file.setProperty("model", "file-model");
+        file.setProperty("apiKey", "file-key");
+        Properties system = new Properties();
+        system.setProperty("ai.endpoint", "http://127.0.0.1:8089/v1/chat/completions");
+
+        AiConfig config = new AiConfig(file, Map.of("AI_MODEL", "env-model", "DEEPSEEK_API_KEY", "env-key"), system);
+
+        assertEquals("http://127.0.0.1:8089/v1/chat/completions", config.getEndpoint());
+        assertEquals("env-model", config.getModel());
+        assertEquals("env-key", config.getApiKey());
+    }
+
+    @Test
+    void testDefaultsWhenNothingConfigured() {
+        AiConfig config = new AiConfig(new Properties(), Map.of("AI_ENDPOINT", " "), new Properties());
+
+        assertEquals(AiConfig.DEFAULT_ENDPOINT, config.getEndpoint());
+        assertEquals(AiConfig.DEFAULT_MODEL, config.getModel());
+        // 没有配置密钥时AI不可用
+        assertNull(config.getApiKey());
+        assertFalse(config.hasApiKey());
+        assertFalse(new AiConfig("http://x", "m", "YOUR_DEEPSEEK_API_KEY").hasApiKey());
+    }
+}
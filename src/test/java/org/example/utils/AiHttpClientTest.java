@@ -0,0 +1,58 @@
+package org.example.utils;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AiHttpClientTest {
+
+    private HttpServer server;
+    private String baseUrl;
+    private final AtomicReference<String> lastAuthorization = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/ok", exchange -> {
+            lastAuthorization.set(exchange.getRequestHeaders().getFirst("Authorization"));
+            byte[] request = exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(200, request.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(request);
+            }
+        });
+        server.createContext("/fail", exchange -> {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void testPostJsonReturnsBodyAndSendsKey() throws IOException {
+        String body = "{\"text\":\"美团外卖\"}";
+        assertEquals(body, AiHttpClient.postJson(baseUrl + "/ok", "test-key", body));
+        assertEquals("Bearer test-key", lastAuthorization.get());
+        // 同一个客户端实例被所有调用共用
+        assertSame(AiHttpClient.client(), AiHttpClient.client());
+    }
+
+    @Test
+    void testErrorStatusThrows() {
+        IOException e = assertThrows(IOException.class,
+                () -> AiHttpClient.postJson(baseUrl + "/fail", "test-key", "{}"));
+        assertTrue(e.getMessage().contains("503"));
+    }
+}
@@ -0,0 +1,44 @@
+package org.example.utils;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClassificationCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testKeyIgnoresDigitsAndKeepsAmountBucket() {
+        assertEquals(ClassificationCache.keyOf("美团外卖 订单2025041401", "-35.5"),
+                ClassificationCache.keyOf("美团外卖  订单2025051877", "-42"));
+        assertEquals(ClassificationCache.keyOf("DiDi Ride", "-12"), ClassificationCache.keyOf("didi ride", "-18.3"));
+        assertNotEquals(ClassificationCache.keyOf("滴滴出行", "-20"), ClassificationCache.keyOf("滴滴出行", "20"));
+        assertNotEquals(ClassificationCache.keyOf("滴滴出行", "-20"), ClassificationCache.keyOf("滴滴出行", "-2000"));
+    }
+
+    @Test
+    void testLeastRecentlyUsedEvictionAndPersistence() {
+        File file = tempDir.resolve("cache.txt").toFile();
+        ClassificationCache cache = new ClassificationCache(file, 2);
+        cache.put("美团外卖", "-30", "Food & Dining");
+        cache.put("滴滴出行", "-20", "Transportation");
+        // 访问后美团成为最近使用，加入第三条时淘汰滴滴
+        assertEquals("Food & Dining", cache.get("美团外卖", "-35"));
+        cache.put("Netflix", "-68", "Entertainment");
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("滴滴出行", "-20"));
+        cache.flush();
+
+        ClassificationCache reloaded = new ClassificationCache(file, 2);
+        assertEquals("Food & Dining", reloaded.get("美团外卖", "-30"));
+        assertEquals("Entertainment", reloaded.get("netflix", "-70"));
+        assertNull(reloaded.get("滴滴出行", "-20"));
+    }
+}
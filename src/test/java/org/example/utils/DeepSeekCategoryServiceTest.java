@@ -0,0 +1,137 @@
+package org.example.utils;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeepSeekCategoryServiceTest {
+
+    @Test
+    void testThousandRowsPackIntoFewDozenBatches() {
+        List<String> descriptions = new ArrayList<>();
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            descriptions.add("美团外卖 订单" + i + " Meituan Delivery");
+            pending.add(i);
+        }
+
+        List<List<Integer>> batches = DeepSeekCategoryService.packBatches(pending, descriptions, 300);
+        assertTrue(batches.size() > 1 && batches.size() <= 50, "batches: " + batches.size());
+
+        // 每个交易正好出现一次，顺序不变
+        List<Integer> flattened = new ArrayList<>();
+        batches.forEach(flattened::addAll);
+        assertEquals(pending, flattened);
+    }
+
+    @Test
+    void testParseBatchResponse() throws Exception {
+        String response = "{\"choices\":[{\"message\":{\"role\":\"assistant\","
+                + "\"content\":\"```json\\n[\\\"Food & Dining\\\", \\\"Transportation\\\"]\\n```\"}}]}";
+        String content = DeepSeekCategoryService.extractContent(response);
+        assertEquals(Arrays.asList("Food & Dining", "Transportation"),
+                DeepSeekCategoryService.parseCategoryArray(content));
+
+        assertNull(DeepSeekCategoryService.parseCategoryArray("Food & Dining"));
+        assertEquals(3, DeepSeekCategoryService.estimateTokens("滴滴abcd"));
+    }
+
+    @Test
+    void testIdenticalTransactionsShareOneRequest() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        DeepSeekCategoryService service = new DeepSeekCategoryService(new ClassificationCache(null, 100)) {
+            @Override
+            String postChat(String systemPrompt, String userContent) throws java.io.IOException {
+                requests.incrementAndGet();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                int count = userContent.split("\n").length - 1;
+                List<String> answers = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    answers.add("\\\"Food & Dining\\\"");
+                }
+                return "{\"choices\":[{\"message\":{\"content\":\"[" + String.join(",", answers) + "]\"}}]}";
+            }
+        };
+        try {
+            List<String> descriptions = new ArrayList<>();
+            List<String> amounts = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                descriptions.add("Lucky Noodle Bar #" + i);
+                amounts.add("-25");
+            }
+            CompletableFuture<List<String>> batch = service.classifyTransactionsAsync(descriptions, amounts);
+            // 批量请求进行中时相同商户的单个请求共用它的结果
+            CompletableFuture<String> single = service.classifyTransactionAsync("lucky noodle bar #99", "-30");
+            release.countDown();
+
+            List<String> categories = batch.get(5, TimeUnit.SECONDS);
+            assertEquals(30, categories.size());
+            assertTrue(categories.stream().allMatch("Food & Dining"::equals));
+            assertEquals("Food & Dining", single.get(5, TimeUnit.SECONDS));
+            assertEquals(1, requests.get());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void testUnavailableApiLeavesResultsForLater() throws Exception {
+        ClassificationCache cache = new ClassificationCache(null, 100);
+        cache.put("Corner Bakery", "-12", "Food & Dining");
+        DeepSeekCategoryService service = new DeepSeekCategoryService(cache) {
+            @Override
+            String postChat(String systemPrompt, String userContent) throws java.io.IOException {
+                throw new java.io.IOException("connection refused");
+            }
+        };
+        service.setLocalFallback(false);
+        try {
+            List<String> categories = service.classifyTransactionsAsync(
+                    Arrays.asList("Corner Bakery", "Harbor Ferry Tickets"), Arrays.asList("-12", "-40"))
+                    .get(5, TimeUnit.SECONDS);
+            // 缓存命中的交易有结果，需要API的交易留给后台分类
+            assertEquals(Arrays.asList("Food & Dining", null), categories);
+            assertEquals(1, service.getRemoteRequests());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void testMismatchedReplySplitsOnlyOnce() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        DeepSeekCategoryService service = new DeepSeekCategoryService(new ClassificationCache(null, 100)) {
+            @Override
+            String postChat(String systemPrompt, String userContent) {
+                requests.incrementAndGet();
+                return "{\"choices\":[{\"message\":{\"content\":\"[\\\"Other\\\"]\"}}]}";
+            }
+        };
+        service.setLocalFallback(false);
+        try {
+            List<String> descriptions = Arrays.asList("Quiet Harbor Kiosk", "Maple Lane Florist", "Copper Kettle",
+                    "Northgate Laundry", "Blue Heron Books", "Sundial Optics", "Willow Pharmacy", "Granite Hardware");
+            List<String> amounts = Collections.nCopies(descriptions.size(), "-9");
+            List<String> categories = service.classifyTransactionsAsync(descriptions, amounts).get(5, TimeUnit.SECONDS);
+            // 整批一次，拆成两半各一次，之后不再拆分
+            assertEquals(3, requests.get());
+            assertTrue(categories.stream().allMatch(category -> category == null));
+        } finally {
+            service.shutdown();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.utils;
+
+import org.junit.jupiter.api.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeywordMatcherTest {
+
+    @Test
+    void testOverlappingKeywordsPreferLongestThenFirstAdded() {
+        Map<String, String> rules = new LinkedHashMap<>();
+        rules.put("he", "A");
+        rules.put("she", "B");
+        rules.put("hers", "C");
+        rules.put("外卖", "Food & Dining");
+        rules.put("美团", "Shopping");
+        rules.put("美团打车", "Transportation");
+        KeywordMatcher matcher = new KeywordMatcher(rules);
+
+        assertEquals("C", matcher.match("USHERS"));
+        assertEquals("B", matcher.match("ushe"));
+        assertEquals("A", matcher.match("the"));
+        assertNull(matcher.match("xyz"));
+
+        // 长度相同时使用先添加的规则，更长的关键词优先
+        assertEquals("Food & Dining", matcher.match("美团外卖"));
+        assertEquals("Transportation", matcher.match("美团打车-订单123"));
+        assertEquals("Transportation", matcher.match("支付宝 美团打车"));
+    }
+
+    @Test
+    void testFailureLinksFindKeywordsAfterPartialMatches() {
+        Map<String, String> rules = new LinkedHashMap<>();
+        rules.put("abcd", "long");
+        rules.put("bc", "short");
+        rules.put("aab", "prefix");
+        KeywordMatcher matcher = new KeywordMatcher(rules);
+
+        assertEquals("short", matcher.match("abce"));
+        assertEquals("prefix", matcher.match("aaab"));
+        assertEquals("long", matcher.match("xabcdx"));
+        assertNull(new KeywordMatcher(new LinkedHashMap<>()).match("abcd"));
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.utils;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalCategoryModelTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static void train(LocalCategoryModel model) {
+        for (int i = 0; i < 5; i++) {
+            model.learn("美团外卖-订单" + (1000 + i), "-" + (20 + i), "Food & Dining");
+            model.learn("饿了么 外卖 " + i, "-35", "Food & Dining");
+            model.learn("滴滴出行 快车" + i, "-" + (15 + i), "Transportation");
+            model.learn("地铁 一卡通充值", "-50", "Transportation");
+            model.learn("工资 发放 2025-0" + (i + 1), "8000", "Income");
+        }
+    }
+
+    @Test
+    void testPredictsChineseMerchantsAfterTraining() {
+        LocalCategoryModel model = new LocalCategoryModel(null);
+        assertNull(model.predict("美团外卖", "-30"));
+
+        train(model);
+        assertEquals("Food & Dining", model.predict("美团外卖 订单98765", "-42"));
+        assertEquals("Transportation", model.predict("滴滴出行 专车", "-60"));
+        assertEquals("Income", model.predict("工资", "9000"));
+        // 没见过的商户置信度不足，交给远程API
+        assertNull(model.predict("Apple Store", "-6999"));
+    }
+
+    @Test
+    void testRelabelAndPersistence() {
+        File file = tempDir.resolve("alice_category_model.txt").toFile();
+        LocalCategoryModel model = new LocalCategoryModel(file);
+        train(model);
+        for (int i = 0; i < 6; i++) {
+            model.relabel("地铁 一卡通充值", "-50", i < 5 ? "Transportation" : null, "Travel");
+        }
+        model.setTrainedThroughId(42);
+        model.save();
+
+        LocalCategoryModel reloaded = new LocalCategoryModel(file);
+        assertEquals(42, reloaded.getTrainedThroughId());
+        assertEquals("Food & Dining", reloaded.predict("美团外卖-订单5555", "-25"));
+        assertEquals("Travel", reloaded.predict("地铁 一卡通充值", "-50"));
+    }
+}
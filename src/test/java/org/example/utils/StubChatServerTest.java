@@ -0,0 +1,81 @@
+package org.example.utils;
+
+import org.junit.jupiter.api.*;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StubChatServerTest {
+
+    private StubChatServer stub;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new StubChatServer(0);
+        stub.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.stop();
+    }
+
+    @Test
+    void testBatchCategorizationAgainstStub() throws Exception {
+        AiConfig config = new AiConfig(stub.getEndpoint(), "stub-model", "test-key");
+        DeepSeekCategoryService service = new DeepSeekCategoryService(new ClassificationCache(null, 100), null, config);
+        service.setLocalFallback(false);
+        try {
+            List<String> descriptions = new ArrayList<>();
+            List<String> amounts = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                descriptions.add("Stub Merchant " + (char) ('A' + i % 20) + " order");
+                amounts.add("-" + (10 + i));
+            }
+            List<String> categories = service.classifyTransactionsAsync(descriptions, amounts).get(10, TimeUnit.SECONDS);
+
+            assertEquals(40, categories.size());
+            assertTrue(DeepSeekCategoryService.getPredefinedCategories().containsAll(categories));
+            assertEquals(categories.get(0), categories.get(20));
+            assertEquals(service.getRemoteRequests(), stub.getRequestCount());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void testForecastReplyCoversRequestedMonths() {
+        String content = StubChatServer.contentFor("predict spending for the next 2 months.\n\n"
+                + "Historical monthly spending:\n2025-01: ¥100.00\n2025-02: ¥300.00\n"
+                + "Return your prediction in JSON format like this:\n{\n  \"predictions\": {");
+        assertTrue(content.contains("\"2025-03\":200.0"), content);
+        assertTrue(content.contains("\"2025-04\":200.0"), content);
+    }
+
+    @Test
+    void testErrorAndThrottleRates() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(stub.getEndpoint()))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"messages\":[]}"))
+                .build();
+
+        stub.setErrorRate(1.0);
+        assertEquals(500, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        stub.setErrorRate(0);
+        stub.setThrottleRate(1.0);
+        HttpResponse<String> throttled = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(429, throttled.statusCode());
+        assertEquals("1", throttled.headers().firstValue("Retry-After").orElse(""));
+
+        stub.setThrottleRate(0);
+        assertEquals(200, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+}